@@ -0,0 +1,75 @@
+package com.dark_store.bukafresh_backend.config;
+
+import ch.qos.logback.classic.Logger;
+import com.dark_store.bukafresh_backend.model.Role;
+import com.dark_store.bukafresh_backend.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+// The filter's hot path for an authenticated request: parseAccessToken, the authorities and the principal
+// built from the claims. "hit" reuses verified claims from the cache, "miss" verifies the signature every time.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    @Param({"hit", "miss"})
+    public String claimsCache;
+
+    private JwtAuthFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        // Only the filter's own work is measured, not its debug logging
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+
+        // A zero-sized cache evicts every entry straight away, so each request verifies the signature again
+        long cacheSize = "hit".equals(claimsCache) ? 10_000 : 0;
+        JwtUtil jwtUtil = new JwtUtil(SECRET, "3600000", cacheSize, new SimpleMeterRegistry());
+        filter = new JwtAuthFilter(jwtUtil, null);
+
+        authorization = "Bearer " + jwtUtil.generateToken(User.builder()
+                .id("user-123")
+                .email("user@bukafresh.com")
+                .role(Role.USER)
+                .emailVerified(true)
+                .build());
+    }
+
+    @Benchmark
+    public Authentication authenticate() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/subscriptions/me");
+        request.addHeader("Authorization", authorization);
+
+        filter.doFilter(request, new MockHttpServletResponse(), NO_OP_CHAIN);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // The filter only authenticates when the context is empty, as it is at the start of a real request
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
@@ -0,0 +1,70 @@
+package com.dark_store.bukafresh_backend.util;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Per-call key derivation and Cipher.getInstance against the cached key schedule and per-thread cipher.
+// Run with -prof gc to compare gc.alloc.rate.norm (bytes per call).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripleDESBenchmark {
+
+    private static final String SECRET_KEY = "onepipe-encryption-key";
+    private static final String ACCOUNT_NUMBER = "0123456789";
+    private static final String BANK_CODE = "058";
+
+    @Benchmark
+    public String perCallCipher() {
+        return legacyEncrypt(ACCOUNT_NUMBER + ";" + BANK_CODE, SECRET_KEY);
+    }
+
+    @Benchmark
+    public String cachedCipher() {
+        return TripleDES.encrypt(ACCOUNT_NUMBER, BANK_CODE, SECRET_KEY);
+    }
+
+    // TripleDES.encrypt before the key schedule and cipher were cached
+    private static String legacyEncrypt(String payload, String secretKey) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            byte[] digest = md.digest(secretKey.getBytes(StandardCharsets.UTF_16LE));
+
+            byte[] keyBytes = Arrays.copyOf(digest, 24);
+            for (int j = 0, k = 16; j < 8;) {
+                keyBytes[k++] = keyBytes[j++];
+            }
+
+            SecretKey secretKeySpec = new SecretKeySpec(keyBytes, "DESede");
+            IvParameterSpec iv = new IvParameterSpec(new byte[8]);
+
+            Cipher cipher = Cipher.getInstance("DESede/CBC/PKCS5Padding");
+            cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec, iv);
+
+            byte[] encrypted = cipher.doFinal(payload.getBytes(StandardCharsets.UTF_16LE));
+            return Base64.encodeBase64String(encrypted);
+        } catch (Exception e) {
+            throw new IllegalStateException("TripleDES encryption failed", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.dark_store.bukafresh_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "billing")
+@Data
+public class BillingProperties {
+
+    // Number of partitions billed in parallel on each node
+    private int concurrency = 4;
+
+    // Subscriptions handed to a single worker
+    private int partitionSize = 500;
+
+    // Partitions published ahead of the workers before the coordinator waits
+    private int maxPendingPartitions = 8;
+
+    // Billing date updates sent to Mongo in one bulk write
+    private int writeBatchSize = 250;
+
+    // Longest a buffered update waits before its batch is flushed
+    private Duration writeFlushInterval = Duration.ofSeconds(2);
+
+    // Identifies this replica in leases, defaults to host name plus a random suffix
+    private String nodeId;
+
+    // Coordinator lease, renewed at half its TTL while a run is in progress
+    private Duration leaseTtl = Duration.ofSeconds(60);
+
+    // How long a partition stays claimed without a heartbeat before another replica can take it over,
+    // renewed at half its TTL while the worker is billing it
+    private Duration partitionLeaseTtl = Duration.ofMinutes(5);
+
+    private int maxPartitionAttempts = 3;
+
+    // How often the coordinator checks partition progress
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    // How often every replica looks for partitions to work on
+    private Duration workerPollInterval = Duration.ofSeconds(2);
+}
@@ -1,27 +1,113 @@
 package com.dark_store.bukafresh_backend.config;
 
+import com.dark_store.bukafresh_backend.model.Role;
+import com.dark_store.bukafresh_backend.model.User;
 import com.dark_store.bukafresh_backend.repository.UserRepository;
-import lombok.AllArgsConstructor;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
 @Service
-@RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    // Users loaded by ID for JWT authentication, bounded and short-lived so lock/verify changes surface quickly.
+    // Holds an immutable snapshot without the password hash, each request gets its own copy.
+    private final Cache<String, CachedUser> usersById;
+
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${user_cache_ttl:PT1M}") Duration ttl,
+                                    @Value("${user_cache_max_size:10000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        // Exposed as cache.gets / cache.puts / cache.evictions with cache=principals
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "principals");
+    }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         // First try to find by ID (for JWT authentication where username is actually userId)
-        return userRepository.findById(username)
+        return findById(username)
                 .orElseGet(() -> 
                     // If not found by ID, try by email (for form-based authentication)
                     userRepository.findByEmail(username)
                         .orElseThrow(() -> new UsernameNotFoundException(username + " not found"))
                 );
     }
-}
\ No newline at end of file
+
+    // Called by the authentication provider after a successful login when the stored hash uses an older cost
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        // Reloaded rather than cast, the principal may be a cached copy without the stored fields
+        User stored = userRepository.findByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException(user.getUsername() + " not found"));
+        stored.setPassword(newPassword);
+        stored.setUpdatedAt(LocalDateTime.now());
+        User saved = userRepository.save(stored);
+        evict(saved.getId());
+        return saved;
+    }
+
+    // Call after saving a user so the next request sees the change
+    public void evict(String userId) {
+        if (userId != null) {
+            usersById.invalidate(userId);
+        }
+    }
+
+    private Optional<User> findById(String userId) {
+        CachedUser cached = usersById.getIfPresent(userId);
+        if (cached == null) {
+            cached = userRepository.findById(userId).map(CachedUser::of).orElse(null);
+            if (cached == null) {
+                return Optional.empty();
+            }
+            usersById.put(userId, cached);
+        }
+        return Optional.of(cached.toUser());
+    }
+
+    // What a request needs to authorise, tokens and the password hash stay in the database
+    private record CachedUser(String id, String email, Role role, boolean accountNonExpired,
+                              boolean accountNonLocked, boolean credentialsNonExpired, Boolean emailVerified,
+                              String profileId, LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+        static CachedUser of(User user) {
+            return new CachedUser(user.getId(), user.getEmail(), user.getRole(), user.isAccountNonExpired(),
+                    user.isAccountNonLocked(), user.isCredentialsNonExpired(), user.getEmailVerified(),
+                    user.getProfileId(), user.getCreatedAt(), user.getUpdatedAt());
+        }
+
+        User toUser() {
+            return User.builder()
+                    .id(id)
+                    .email(email)
+                    .role(role)
+                    .accountNonExpired(accountNonExpired)
+                    .accountNonLocked(accountNonLocked)
+                    .credentialsNonExpired(credentialsNonExpired)
+                    .emailVerified(emailVerified)
+                    .profileId(profileId)
+                    .createdAt(createdAt)
+                    .updatedAt(updatedAt)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.dark_store.bukafresh_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "idempotency")
+@Data
+public class IdempotencyProperties {
+
+    // How long a stored response is replayed for a repeated Idempotency-Key, Mongo removes it afterwards
+    private Duration ttl = Duration.ofHours(24);
+
+    // How long a running request holds its key before another instance may take it over
+    private Duration lockTimeout = Duration.ofMinutes(2);
+
+    // How long a repeat waits for the same key running on another instance before answering 409
+    private Duration waitTimeout = Duration.ofSeconds(10);
+    private Duration pollInterval = Duration.ofMillis(200);
+
+    // Completed responses kept in memory so repeats do not reach Mongo
+    private long nearCacheSize = 10_000;
+    private Duration nearCacheTtl = Duration.ofMinutes(10);
+}
@@ -1,69 +1,133 @@
 package com.dark_store.bukafresh_backend.config;
 
+import com.dark_store.bukafresh_backend.model.Role;
+import com.dark_store.bukafresh_backend.model.User;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AccountStatusException;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final AccountStatusUserDetailsChecker accountStatusChecker = new AccountStatusUserDetailsChecker();
+
+    // Off by default: the signed claims are trusted until the token expires
+    @Value("${jwt_load_user:false}")
+    private boolean loadUserFromDatabase;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
 
-        System.out.println("JWT Filter processing request: " + request.getMethod() + " " + request.getRequestURI());
+        log.debug("JWT filter processing request: {} {}", request.getMethod(), request.getRequestURI());
         
         final String authHeader = request.getHeader("Authorization");
-        final String userId;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            System.out.println("No Authorization header or not Bearer token, proceeding without authentication");
+            log.trace("No Authorization header or not Bearer token, proceeding without authentication");
             filterChain.doFilter(request, response);
             return;
         }
 
 
-        System.out.println("Processing JWT token...");
-
         String token = authHeader.substring(7);
 
-        if (!jwtUtil.validateToken(token)) {
-            System.out.println("JWT token validation failed");
+        // Parsed and verified once, everything below reads from these claims
+        Optional<Claims> claims = jwtUtil.parseAccessToken(token);
+        if (claims.isEmpty()) {
+            log.debug("JWT token validation failed");
             filterChain.doFilter(request, response);
             return;
         }
-        userId = jwtUtil.extractUsername(token);
-        List<String> permissions = jwtUtil.extractPermissions(token);
+
+        final String userId = claims.get().getSubject();
+        List<String> permissions = jwtUtil.extractPermissions(claims.get());
 
         var authorities = permissions.stream()
                 .map(SimpleGrantedAuthority::new)
                 .toList();
-        UserDetails userDetails = userDetailsService.loadUserByUsername(userId);
 
         if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails userDetails;
+                try {
+                    // Tokens issued before the account state was a claim are checked against the database
+                    userDetails = loadUserFromDatabase || !hasAccountState(claims.get())
+                            ? userDetailsService.loadUserByUsername(userId)
+                            : principalFromClaims(userId, claims.get());
+                    accountStatusChecker.check(userDetails);
+                } catch (UsernameNotFoundException | AccountStatusException e) {
+                    // Left unauthenticated, so protected endpoints answer 401
+                    log.debug("Rejected token for user {}: {}", userId, e.getMessage());
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, authorities
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
-                System.out.println("JWT token validated and authentication set for user: " + userId);
+                // Carried on every log line for the rest of the request, cleared by RequestLoggingFilter
+                MDC.put("userId", userId);
+                log.debug("JWT token validated and authentication set for user: {}", userId);
         }
         filterChain.doFilter(request, response);
     }
-} 
\ No newline at end of file
+
+    // Same principal type as the database path so CurrentUserUtil keeps working, without the password or profile.
+    // The account state is as it was when the token was issued, set jwt_load_user to see later locks at once.
+    private User principalFromClaims(String userId, Claims claims) {
+        return User.builder()
+                .id(userId)
+                .email(claims.get("email", String.class))
+                .role(roleFromClaims(claims))
+                .emailVerified(claims.get("emailVerified", Boolean.class))
+                .accountNonLocked(claims.get("accountNonLocked", Boolean.class))
+                .accountNonExpired(claims.get("accountNonExpired", Boolean.class))
+                .credentialsNonExpired(claims.get("credentialsNonExpired", Boolean.class))
+                .build();
+    }
+
+    private boolean hasAccountState(Claims claims) {
+        return claims.get("emailVerified") != null
+                && claims.get("accountNonLocked") != null
+                && claims.get("accountNonExpired") != null
+                && claims.get("credentialsNonExpired") != null;
+    }
+
+    private Role roleFromClaims(Claims claims) {
+        List<?> roles = claims.get("roles", List.class);
+        if (roles == null || roles.isEmpty()) {
+            return null;
+        }
+        try {
+            return Role.valueOf(roles.get(0).toString());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
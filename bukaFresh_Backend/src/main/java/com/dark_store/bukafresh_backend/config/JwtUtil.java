@@ -1,44 +1,71 @@
 package com.dark_store.bukafresh_backend.config;
 
+import com.dark_store.bukafresh_backend.model.Role;
 import com.dark_store.bukafresh_backend.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.security.Key;
+import javax.crypto.SecretKey;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Component
 public class JwtUtil {
     private final long EXPIRATION;
-    private final Key key;
-
-    public JwtUtil(@Value("${jwt_secret}") String secret, @Value("${jwt_expiration}") String expiration) {
+    private final SecretKey key;
+    // Immutable and thread-safe, built once instead of per call
+    private final JwtParser parser;
+    private final Map<Role, List<String>> permissionsByRole = new EnumMap<>(Role.class);
+    // Verified claims per token, each entry expires with its token
+    private final Cache<String, Claims> verifiedClaims;
+
+    public JwtUtil(@Value("${jwt_secret}") String secret,
+                   @Value("${jwt_expiration}") String expiration,
+                   @Value("${jwt_claims_cache_size:10000}") long claimsCacheSize,
+                   MeterRegistry meterRegistry) {
 
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.EXPIRATION= Long.parseLong(expiration);
+        this.parser = Jwts.parser().verifyWith(key).build();
+
+        for (Role role : Role.values()) {
+            permissionsByRole.put(role, role.permissions().stream().map(Enum::name).sorted().toList());
+        }
+
+        this.verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new ClaimsExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedClaims, "jwt-claims");
     }
 
     public String generateToken(User user) {
-        System.out.println("User roles" + user.getAuthorities());
-
         List<String> roles = List.of(user.getRole().name());
-        System.out.println(roles);
+        log.debug("Issuing token for user {} with roles {}", user.getId(), roles);
 
-        List<String> permissions = user.getRole()
-                .permissions()
-                .stream()
-                .map(Enum::name)
-                .toList();
+        List<String> permissions = permissionsByRole.get(user.getRole());
 
 
         return Jwts.builder()
@@ -46,6 +73,11 @@ public class JwtUtil {
                 .claim("roles", roles)
                 .claim("email", user.getEmail())
                 .claim("permissions", permissions)
+                // Account state when the token was issued, checked on every request that trusts the claims
+                .claim("emailVerified", user.isEnabled())
+                .claim("accountNonLocked", user.isAccountNonLocked())
+                .claim("accountNonExpired", user.isAccountNonExpired())
+                .claim("credentialsNonExpired", user.isCredentialsNonExpired())
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + EXPIRATION))
                 .signWith(key, SignatureAlgorithm.HS256)
@@ -54,13 +86,36 @@ public class JwtUtil {
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parser().setSigningKey(key).build().parseClaimsJws(token);
+            extractAllClaims(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
 
+    // Verifies the signature and expiry once, empty for invalid tokens and for purpose tokens like email verification
+    public Optional<Claims> parseAccessToken(String token) {
+        try {
+            Claims claims = extractAllClaims(token);
+            if (claims.get("purpose") != null) {
+                return Optional.empty();
+            }
+            return Optional.of(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    public List<String> extractPermissions(Claims claims) {
+        List<?> rawList = claims.get("permissions", List.class);
+        if (rawList == null) {
+            return List.of();
+        }
+        return rawList.stream()
+                .map(Object::toString)
+                .collect(Collectors.toList());
+    }
+
     public String generateVerificationToken(String userId) {
         return Jwts.builder()
                 .subject(userId)
@@ -71,11 +126,7 @@ public class JwtUtil {
     }
 
     public List<String> extractPermissions(String token) {
-        Claims claims = extractAllClaims(token);
-        List<?> rawList = claims.get("permissions", List.class);
-        return rawList.stream()
-                .map(Object::toString)
-                .collect(Collectors.toList());
+        return extractPermissions(extractAllClaims(token));
     }
 
     public String extractUsername(String token) {
@@ -92,6 +143,35 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        Claims cached = verifiedClaims.getIfPresent(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Only tokens that verified are cached, invalid ones throw and are checked again next time
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        if (claims.getExpiration() != null) {
+            verifiedClaims.put(token, claims);
+        }
+        return claims;
+    }
+
+    private static final class ClaimsExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String token, Claims claims, long currentTime) {
+            long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-} 
\ No newline at end of file
+}
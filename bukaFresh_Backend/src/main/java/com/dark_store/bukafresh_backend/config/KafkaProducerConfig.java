@@ -0,0 +1,30 @@
+package com.dark_store.bukafresh_backend.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class KafkaProducerConfig {
+
+    // Outbox events are small JSON documents sent in bursts, so batching and compressing them
+    // cuts broker round trips and bytes on the wire. Idempotence keeps retries from reordering a key.
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer outboxProducerCustomizer(OutboxProperties properties) {
+        return producerFactory -> {
+            Map<String, Object> defaults = new HashMap<>();
+            defaults.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, properties.getCompressionType());
+            defaults.put(ProducerConfig.LINGER_MS_CONFIG, (int) properties.getLinger().toMillis());
+            defaults.put(ProducerConfig.BATCH_SIZE_CONFIG, properties.getBatchBytes());
+            defaults.put(ProducerConfig.ACKS_CONFIG, "all");
+            defaults.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+
+            defaults.keySet().removeAll(producerFactory.getConfigurationProperties().keySet());
+            producerFactory.updateConfigs(defaults);
+        };
+    }
+}
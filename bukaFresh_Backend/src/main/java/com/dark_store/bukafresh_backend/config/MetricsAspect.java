@@ -0,0 +1,86 @@
+package com.dark_store.bukafresh_backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Times service methods, Mongo repository calls and OnePipe client calls, tagged by class, method and outcome.
+// Endpoints are already timed by Spring MVC as http.server.requests.
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class MetricsAspect {
+
+    static final String SERVICE_TIMER = "bukafresh.service";
+    static final String REPOSITORY_TIMER = "bukafresh.repository";
+    static final String ONEPIPE_TIMER = "bukafresh.onepipe";
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(public * com.dark_store.bukafresh_backend.service.impl..*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(SERVICE_TIMER, joinPoint.getSignature().getDeclaringType().getSimpleName(), joinPoint);
+    }
+
+    // Matches derived and inherited (save, findById...) methods on every Spring Data repository proxy
+    @Around("this(org.springframework.data.repository.Repository)")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(joinPoint.getThis());
+        String repository = interfaces.length > 0
+                ? interfaces[0].getSimpleName()
+                : joinPoint.getSignature().getDeclaringType().getSimpleName();
+        return time(REPOSITORY_TIMER, repository, joinPoint);
+    }
+
+    @Around("execution(public * com.dark_store.bukafresh_backend.service.clients..*(..))")
+    public Object timeOnePipe(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(ONEPIPE_TIMER, joinPoint.getSignature().getDeclaringType().getSimpleName(), joinPoint);
+    }
+
+    private Object time(String name, String className, ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            stop(sample, name, className, method, e);
+            throw e;
+        }
+
+        // Reactive calls are timed until they complete, not until the Mono is assembled
+        if (result instanceof Mono<?> mono) {
+            return mono
+                    .doOnSuccess(value -> stop(sample, name, className, method, null))
+                    .doOnError(e -> stop(sample, name, className, method, e))
+                    .doOnCancel(() -> stop(sample, name, className, method, "CANCELLED", "none"));
+        }
+
+        stop(sample, name, className, method, null);
+        return result;
+    }
+
+    private void stop(Timer.Sample sample, String name, String className, String method, Throwable error) {
+        if (error == null) {
+            stop(sample, name, className, method, "SUCCESS", "none");
+        } else {
+            stop(sample, name, className, method, "ERROR", error.getClass().getSimpleName());
+        }
+    }
+
+    private void stop(Timer.Sample sample, String name, String className, String method, String outcome, String exception) {
+        sample.stop(Timer.builder(name)
+                .tag("class", className)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .register(meterRegistry));
+    }
+}
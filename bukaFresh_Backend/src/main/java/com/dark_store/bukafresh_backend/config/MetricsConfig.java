@@ -0,0 +1,39 @@
+package com.dark_store.bukafresh_backend.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class MetricsConfig {
+
+    private static final List<String> LATENCY_TIMERS = List.of(
+            "http.server.requests",
+            "http.client.requests",
+            MetricsAspect.SERVICE_TIMER,
+            MetricsAspect.REPOSITORY_TIMER,
+            MetricsAspect.ONEPIPE_TIMER
+    );
+
+    // p50/p95/p99 per series plus histogram buckets so Prometheus can aggregate percentiles across instances
+    @Bean
+    public MeterFilter latencyPercentiles() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!LATENCY_TIMERS.contains(id.getName())) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentiles(0.5, 0.95, 0.99)
+                        .percentilesHistogram(true)
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
@@ -0,0 +1,261 @@
+package com.dark_store.bukafresh_backend.config;
+
+import com.dark_store.bukafresh_backend.model.BillingCycle;
+import com.dark_store.bukafresh_backend.model.BillingPartition;
+import com.dark_store.bukafresh_backend.model.BillingRun;
+import com.dark_store.bukafresh_backend.model.Order;
+import com.dark_store.bukafresh_backend.model.OutboxEvent;
+import com.dark_store.bukafresh_backend.model.Payment;
+import com.dark_store.bukafresh_backend.model.Profile;
+import com.dark_store.bukafresh_backend.model.Subscription;
+import com.dark_store.bukafresh_backend.model.IdempotencyRecord;
+import com.dark_store.bukafresh_backend.model.User;
+import com.dark_store.bukafresh_backend.repository.BillingCycleRepositoryCustomImpl;
+import com.dark_store.bukafresh_backend.repository.BillingPartitionRepositoryCustomImpl;
+import com.dark_store.bukafresh_backend.repository.IdempotencyRecordRepositoryCustomImpl;
+import com.dark_store.bukafresh_backend.repository.PaymentRepositoryCustomImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Checks that Mongo runs as a replica set, creates the indexes declared on @Document classes (auto-index-creation
+// is off by default) and can optionally explain every repository query shape, refusing to start if any of them
+// needs a collection scan.
+@Slf4j
+@Component
+public class MongoIndexInitializer {
+
+    private final ApplicationContext applicationContext;
+    private final MongoTemplate mongoTemplate;
+    private final boolean verifyQueryPlans;
+
+    public MongoIndexInitializer(ApplicationContext applicationContext,
+                                 MongoTemplate mongoTemplate,
+                                 @Value("${mongo_verify_query_plans:false}") boolean verifyQueryPlans) {
+        this.applicationContext = applicationContext;
+        this.mongoTemplate = mongoTemplate;
+        this.verifyQueryPlans = verifyQueryPlans;
+    }
+
+    @EventListener
+    public void initialize(ContextRefreshedEvent event) {
+        // Child contexts, e.g. the one behind a separate management port, publish the event to this listener too
+        if (event.getApplicationContext() != applicationContext) {
+            return;
+        }
+
+        Set<String> failedCollections;
+        try {
+            requireReplicaSet();
+            failedCollections = createIndexes();
+        } catch (DataAccessResourceFailureException e) {
+            // Mongo is unreachable: not fatal, the app still works once it is back, and the next start tries again
+            log.error("Failed to create Mongo indexes: {}", e.getMessage(), e);
+            return;
+        }
+
+        if (verifyQueryPlans) {
+            verifyQueryPlans(failedCollections);
+        }
+    }
+
+    // Every write runs in a transaction (MongoTransactionConfig), which a standalone server rejects,
+    // so stop here rather than fail on the first request
+    private void requireReplicaSet() {
+        // isMaster rather than hello, which servers before 4.4 lack
+        Document handshake = mongoTemplate.executeCommand(new Document("isMaster", 1));
+        if (handshake.get("setName") == null && !"isdbgrid".equals(handshake.get("msg"))) {
+            throw new IllegalStateException("MongoDB is running as a standalone server, but BukaFresh needs a replica set "
+                    + "or sharded cluster for transactions. Start mongod with --replSet and run rs.initiate(), "
+                    + "or point spring.data.mongodb.uri at a replica set (Atlas clusters always are).");
+        }
+    }
+
+    // Returns the collections where an index could not be created
+    private Set<String> createIndexes() {
+        var mappingContext = mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+
+        Set<String> failedCollections = new LinkedHashSet<>();
+        List<String> missingUniqueIndexes = new ArrayList<>();
+
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+            for (IndexDefinition index : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                try {
+                    String name = indexOps.createIndex(index);
+                    log.debug("Ensured index {} on {}", name, entity.getCollection());
+                } catch (DataAccessResourceFailureException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    // One bad index, e.g. an options conflict with an existing one or duplicates blocking a unique
+                    // build, must not cost the others
+                    log.error("Failed to create index {} on {}: {}", index.getIndexKeys().toJson(), entity.getCollection(), e.getMessage());
+                    failedCollections.add(entity.getCollection());
+
+                    if (isUnique(index) && !hasUniqueIndex(indexOps, index.getIndexKeys())) {
+                        missingUniqueIndexes.add(entity.getCollection() + " " + index.getIndexKeys().toJson());
+                    }
+                }
+            }
+        }
+
+        // Idempotent writes (billing cycles, orders, payment references) rely on these, running without them risks duplicates
+        if (!missingUniqueIndexes.isEmpty()) {
+            throw new IllegalStateException("Unique Mongo indexes are missing: " + missingUniqueIndexes);
+        }
+
+        if (failedCollections.isEmpty()) {
+            log.info("Mongo indexes ensured");
+        } else {
+            log.warn("Mongo indexes ensured except on {}", failedCollections);
+        }
+        return failedCollections;
+    }
+
+    private boolean isUnique(IndexDefinition index) {
+        return Boolean.TRUE.equals(index.getIndexOptions().get("unique"));
+    }
+
+    // An existing unique index on the same keys, e.g. one created by hand under another name, is just as good
+    private boolean hasUniqueIndex(IndexOperations indexOps, Document keys) {
+        List<String> fields = new ArrayList<>(keys.keySet());
+        return indexOps.getIndexInfo().stream()
+                .filter(IndexInfo::isUnique)
+                .anyMatch(info -> info.getIndexFields().stream().map(IndexField::getKey).toList().equals(fields));
+    }
+
+    private void verifyQueryPlans(Set<String> failedCollections) {
+        List<String> collectionScans = new ArrayList<>();
+        int verified = 0;
+
+        for (QueryShape shape : queryShapes()) {
+            String collection = mongoTemplate.getCollectionName(shape.type());
+            // Already reported above, a scan there is expected until the index is fixed
+            if (failedCollections.contains(collection)) {
+                continue;
+            }
+
+            Document plan = mongoTemplate.getCollection(collection)
+                    .find(shape.query().getQueryObject())
+                    .sort(shape.query().getSortObject())
+                    .explain();
+
+            Object winningPlan = ((Document) plan.get("queryPlanner")).get("winningPlan");
+            if (containsStage(winningPlan, "COLLSCAN")) {
+                collectionScans.add(shape.name());
+            }
+            verified++;
+        }
+
+        if (!collectionScans.isEmpty()) {
+            throw new IllegalStateException("Repository queries without a usable index: " + collectionScans);
+        }
+        log.info("Verified query plans for {} repository queries", verified);
+    }
+
+    // One entry per derived or custom repository query, with placeholder values. Custom queries come from the
+    // repository's own builder so a change there is verified here without editing this list.
+    private List<QueryShape> queryShapes() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+
+        return List.of(
+                new QueryShape("UserRepository.findByEmail", User.class,
+                        Query.query(Criteria.where("email").is("x"))),
+                new QueryShape("ProfileRepository.findByUserId", Profile.class,
+                        Query.query(Criteria.where("userId").is("x"))),
+                new QueryShape("SubscriptionRepository.findByStatusAndNextBillingDateLessThanEqualOrderByIdAsc", Subscription.class,
+                        Query.query(Criteria.where("status").is("ACTIVE").and("nextBillingDate").lte(today))
+                                .with(Sort.by("_id"))),
+                new QueryShape("SubscriptionRepository.findByStatusAndNextBillingDateLessThanEqualAndIdGreaterThanOrderByIdAsc", Subscription.class,
+                        Query.query(Criteria.where("status").is("ACTIVE").and("nextBillingDate").lte(today).and("_id").gt("x"))
+                                .with(Sort.by("_id"))),
+                new QueryShape("SubscriptionRepository.findByUserId", Subscription.class,
+                        Query.query(Criteria.where("userId").is("x"))),
+                new QueryShape("PaymentRepository.findUserPaymentPage", Payment.class,
+                        Query.query(Criteria.where("userId").is("x").and("createdAt").lt(now))
+                                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))),
+                new QueryShape("PaymentRepository.findSubscriptionPaymentPage", Payment.class,
+                        Query.query(Criteria.where("subscriptionId").is("x").and("createdAt").lt(now))
+                                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))),
+                new QueryShape("PaymentRepository.findByPaymentReference", Payment.class,
+                        Query.query(Criteria.where("paymentReference").is("x"))),
+                new QueryShape("PaymentRepository.findByOnePipeReference", Payment.class,
+                        Query.query(Criteria.where("onePipeReference").is("x"))),
+                new QueryShape("PaymentRepository.findByStatus", Payment.class,
+                        Query.query(Criteria.where("status").is("x"))),
+                new QueryShape("PaymentRepository.claimQueued", Payment.class,
+                        PaymentRepositoryCustomImpl.claimQueuedQuery()),
+                new QueryShape("PaymentRepository.requeueStalled", Payment.class,
+                        PaymentRepositoryCustomImpl.requeueStalledQuery(now)),
+                new QueryShape("BillingRunRepository.findFirstByBillingDateAndStatus", BillingRun.class,
+                        Query.query(Criteria.where("billingDate").is(today).and("status").is("RUNNING"))),
+                new QueryShape("BillingRunRepository.findByStatus", BillingRun.class,
+                        Query.query(Criteria.where("status").is("RUNNING"))),
+                new QueryShape("BillingPartitionRepository.findByRunIdAndIndexIn", BillingPartition.class,
+                        Query.query(Criteria.where("runId").is("x").and("index").in(0, 1))),
+                new QueryShape("BillingPartitionRepository.findFirstByRunIdOrderByIndexDesc", BillingPartition.class,
+                        Query.query(Criteria.where("runId").is("x")).with(Sort.by(Sort.Direction.DESC, "index"))),
+                new QueryShape("BillingCycleRepository.findByStageInAndUpdatedAtBefore", BillingCycle.class,
+                        Query.query(Criteria.where("stage").in("COLLECT_PENDING", "PAID").and("updatedAt").lt(now))),
+                new QueryShape("BillingCycleRepository.open", BillingCycle.class,
+                        Query.query(Criteria.where("cycleKey").is("x"))),
+                new QueryShape("BillingCycleRepository.claimCollection", BillingCycle.class,
+                        BillingCycleRepositoryCustomImpl.claimCollectionQuery("x", now)),
+                new QueryShape("BillingCycleRepository.advanceCollection", BillingCycle.class,
+                        BillingCycleRepositoryCustomImpl.advanceCollectionQuery("x", 1)),
+                new QueryShape("IdempotencyRecordRepository.claim", IdempotencyRecord.class,
+                        IdempotencyRecordRepositoryCustomImpl.claimQuery("x", "x", now)),
+                new QueryShape("OrderRepository.findByCycleKey", Order.class,
+                        Query.query(Criteria.where("cycleKey").is("x"))),
+                new QueryShape("OutboxEventRepository.findByStatusOrderByCreatedAtAscSequenceAsc", OutboxEvent.class,
+                        Query.query(Criteria.where("status").is("PENDING")).with(Sort.by("createdAt", "sequence"))),
+                new QueryShape("BillingPartitionRepository.claimNext", BillingPartition.class,
+                        BillingPartitionRepositoryCustomImpl.claimNextQuery(now, 3))
+        );
+    }
+
+    private boolean containsStage(Object node, String stage) {
+        if (node instanceof Map<?, ?> map) {
+            if (stage.equals(map.get("stage"))) {
+                return true;
+            }
+            return map.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+
+    private record QueryShape(String name, Class<?> type, Query query) {
+    }
+}
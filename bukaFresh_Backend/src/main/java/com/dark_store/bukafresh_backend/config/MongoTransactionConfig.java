@@ -0,0 +1,18 @@
+package com.dark_store.bukafresh_backend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+// Multi-document transactions, used to write a state change and its outbox event atomically.
+// Needs Mongo to run as a replica set (Atlas always does), MongoIndexInitializer refuses to start otherwise.
+@Configuration
+public class MongoTransactionConfig {
+
+    // Boot builds the TransactionTemplate on top of this
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+}
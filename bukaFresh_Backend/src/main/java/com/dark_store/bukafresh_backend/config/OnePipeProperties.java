@@ -5,6 +5,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @ConfigurationProperties(prefix = "onepipe")
 @Data
@@ -17,4 +19,61 @@ public class OnePipeProperties {
     private String billerCode;
     private String bearerToken;
     private String mockMode;
+    private Http http = new Http();
+    private Collect collect = new Collect();
+    private Resilience resilience = new Resilience();
+
+    @Data
+    public static class Http {
+        private int maxConnections = 50;
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInterval = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(3);
+        private Duration responseTimeout = Duration.ofSeconds(15);
+        // Debits wait on the customer's bank, so they get longer than mandate calls
+        private Duration collectResponseTimeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Collect {
+        // Concurrent debits start here and adapt between the bounds to OnePipe's latency and errors
+        private int initialLimit = 8;
+        private int minLimit = 1;
+        private int maxLimit = 64;
+        // Multiplier applied to the limit on a timeout, 429 or 5xx
+        private double backoffRatio = 0.7;
+        // A response slower than this multiple of the smoothed latency counts as congestion
+        private double latencyTolerance = 2.0;
+
+        // Hard ceiling agreed with OnePipe, whatever the limit says
+        private double requestsPerSecond = 50;
+        private int burst = 50;
+
+        private int maxRetries = 3;
+        private Duration minBackoff = Duration.ofMillis(200);
+        private Duration maxBackoff = Duration.ofSeconds(5);
+        private double jitter = 0.5;
+    }
+
+    // One circuit breaker and bulkhead per operation, so a failing mandate API does not stop debits
+    @Data
+    public static class Resilience {
+        // Share of failed or slow calls in the window that opens the circuit
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 80;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(10);
+        private int slidingWindowSize = 50;
+        private int minimumNumberOfCalls = 20;
+        // How long an open circuit fails fast before letting probe calls through
+        private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+        private int permittedCallsInHalfOpenState = 5;
+
+        // Concurrent calls per operation, extra calls are rejected at once instead of queueing
+        private int mandateMaxConcurrentCalls = 20;
+        private int collectMaxConcurrentCalls = 64;
+        private int directDebitMaxConcurrentCalls = 50;
+    }
 }
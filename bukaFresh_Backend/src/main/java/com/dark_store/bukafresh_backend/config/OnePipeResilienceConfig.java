@@ -0,0 +1,82 @@
+package com.dark_store.bukafresh_backend.config;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+@Configuration
+@RequiredArgsConstructor
+public class OnePipeResilienceConfig {
+
+    public static final String MANDATE = "onepipe-mandate";
+    public static final String COLLECT = "onepipe-collect";
+    public static final String DIRECT_DEBIT = "onepipe-direct-debit";
+
+    private final OnePipeProperties onePipeProperties;
+
+    // Breaker state, failure rate and call counts are published as resilience4j_circuitbreaker_* per operation
+    @Bean
+    public CircuitBreakerRegistry onePipeCircuitBreakerRegistry(MeterRegistry meterRegistry) {
+        OnePipeProperties.Resilience resilience = onePipeProperties.getResilience();
+
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(resilience.getFailureRateThreshold())
+                .slowCallRateThreshold(resilience.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(resilience.getSlowCallDurationThreshold())
+                .slidingWindowSize(resilience.getSlidingWindowSize())
+                .minimumNumberOfCalls(resilience.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(resilience.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(resilience.getPermittedCallsInHalfOpenState())
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                // Only OnePipe being down or slow counts, a rejected request or a full bulkhead does not
+                .recordException(OnePipeResilienceConfig::isOnePipeFailure)
+                .ignoreExceptions(BulkheadFullException.class)
+                .build();
+
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        registry.circuitBreaker(MANDATE);
+        registry.circuitBreaker(COLLECT);
+        registry.circuitBreaker(DIRECT_DEBIT);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public BulkheadRegistry onePipeBulkheadRegistry(MeterRegistry meterRegistry) {
+        OnePipeProperties.Resilience resilience = onePipeProperties.getResilience();
+
+        BulkheadRegistry registry = BulkheadRegistry.ofDefaults();
+        registry.bulkhead(MANDATE, bulkhead(resilience.getMandateMaxConcurrentCalls()));
+        registry.bulkhead(COLLECT, bulkhead(resilience.getCollectMaxConcurrentCalls()));
+        registry.bulkhead(DIRECT_DEBIT, bulkhead(resilience.getDirectDebitMaxConcurrentCalls()));
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    private static BulkheadConfig bulkhead(int maxConcurrentCalls) {
+        return BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+    }
+
+    private static boolean isOnePipeFailure(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429;
+        }
+        return e instanceof WebClientRequestException || e instanceof TimeoutException;
+    }
+}
@@ -0,0 +1,52 @@
+package com.dark_store.bukafresh_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "pipeline")
+@Data
+public class OrderPipelineProperties {
+
+    // Collect workers only claim the cycle and hand the debit to the collect engine, they never wait on OnePipe.
+    // Debits outstanding at once are capped at onepipe.collect.max-limit whatever the thread count.
+    private Stage collect = new Stage(4, 500);
+    private Stage order = new Stage(4, 200);
+    private Stage delivery = new Stage(2, 200);
+
+    // Collection attempts per cycle before it is marked COLLECTION_FAILED
+    private int maxCollectAttempts = 3;
+
+    // A cycle that has not moved for this long is handed to its stage again
+    private Duration stallTimeout = Duration.ofMinutes(5);
+
+    // Longest one collection may take, waiting for a permit and retries included. Kept well under
+    // stallTimeout so a slow collection has given up before the recovery sweep hands the cycle on.
+    private Duration collectTimeout = Duration.ofMinutes(2);
+
+    // How often stalled cycles are looked for
+    private Duration recoveryInterval = Duration.ofMinutes(1);
+
+    private int recoveryBatchSize = 200;
+
+    private DayOfWeek deliveryDay = DayOfWeek.SATURDAY;
+
+    @Data
+    public static class Stage {
+        private int threads;
+        // Full queues block the stage upstream instead of growing without bound
+        private int queueCapacity;
+
+        public Stage() {
+        }
+
+        public Stage(int threads, int queueCapacity) {
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+}
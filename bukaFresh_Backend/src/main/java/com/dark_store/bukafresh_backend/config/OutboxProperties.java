@@ -0,0 +1,36 @@
+package com.dark_store.bukafresh_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "outbox")
+@Data
+public class OutboxProperties {
+
+    // Publishing to Kafka is off until a broker is configured, events still accumulate in the outbox
+    private boolean relayEnabled = false;
+
+    // How often the relay looks for unpublished events
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    // Events read from Mongo and sent to Kafka in one go
+    private int batchSize = 500;
+
+    // Longest the relay waits for the broker to acknowledge a batch
+    private Duration sendTimeout = Duration.ofSeconds(30);
+
+    // Single-publisher lease, extended before every batch, so it has to be longer than sendTimeout
+    private Duration leaseTtl = Duration.ofSeconds(60);
+
+    // Events go to <topicPrefix><aggregate type>, e.g. bukafresh.payment
+    private String topicPrefix = "bukafresh.";
+
+    // Producer defaults, spring.kafka.producer.* settings take precedence
+    private String compressionType = "lz4";
+    private Duration linger = Duration.ofMillis(20);
+    private int batchBytes = 64 * 1024;
+}
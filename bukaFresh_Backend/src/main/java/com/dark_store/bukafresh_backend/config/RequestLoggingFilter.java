@@ -0,0 +1,65 @@
+package com.dark_store.bukafresh_backend.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+// Tags every log line of a request with requestId/userId and writes one access line with its latency
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+    private static final String REQUEST_ID_HEADER = "X-Request-Id";
+    // The caller's id ends up in every log line and in the response header, so only plain ids are taken over
+    private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+    private static final String REQUEST_ID_ATTRIBUTE = RequestLoggingFilter.class.getName() + ".requestId";
+    private static final String STARTED_AT_ATTRIBUTE = RequestLoggingFilter.class.getName() + ".startedAt";
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // Async results (Mono/202 flows) finish on a second dispatch, which is where the latency is known
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String requestId = (String) request.getAttribute(REQUEST_ID_ATTRIBUTE);
+        if (requestId == null) {
+            requestId = request.getHeader(REQUEST_ID_HEADER);
+            if (requestId == null || !VALID_REQUEST_ID.matcher(requestId).matches()) {
+                requestId = UUID.randomUUID().toString();
+            }
+            request.setAttribute(REQUEST_ID_ATTRIBUTE, requestId);
+            request.setAttribute(STARTED_AT_ATTRIBUTE, System.nanoTime());
+            response.setHeader(REQUEST_ID_HEADER, requestId);
+        }
+
+        MDC.put("requestId", requestId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (!request.isAsyncStarted()) {
+                long latencyMs = (System.nanoTime() - (long) request.getAttribute(STARTED_AT_ATTRIBUTE)) / 1_000_000;
+                MDC.put("latencyMs", String.valueOf(latencyMs));
+                log.info("{} {} -> {} in {} ms", request.getMethod(), request.getRequestURI(), response.getStatus(), latencyMs);
+            }
+            MDC.remove("requestId");
+            MDC.remove("userId");
+            MDC.remove("latencyMs");
+        }
+    }
+}
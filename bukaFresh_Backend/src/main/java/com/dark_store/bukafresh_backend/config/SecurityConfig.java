@@ -1,6 +1,9 @@
 package com.dark_store.bukafresh_backend.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -18,9 +21,11 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 
+@Slf4j
 @Configuration
 @EnableMethodSecurity
 @RequiredArgsConstructor
@@ -30,33 +35,38 @@ public class SecurityConfig {
     private final JwtAuthFilter jwtAuthFilter;
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        System.out.println("Configuring security filter chain...");
-        
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   @Value("${server.port:8080}") int serverPort,
+                                                   @Value("${management.server.port:-1}") int managementPort) throws Exception {
         http
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(AbstractHttpConfigurer::disable)
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Async results are dispatched again without the JWT, the original request was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers(
                     "/api/users/login",
                     "/api/users/register",
                     "/api/users/verify-email",
                     "/api/users/checkout-register",
-                    "/api/users/resend-verification-email"
+                    "/api/users/resend-verification-email",
+                    "/actuator/health"
                 ).permitAll()
+                // Scrapes arrive on the internal management port, never on the API port
+                .requestMatchers(request -> managementPort > 0 && managementPort != serverPort
+                        && request.getLocalPort() == managementPort).permitAll()
                 .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
 
 
-        System.out.println("Security filter chain configured successfully");
+        log.info("Security filter chain configured");
         return http.build();
     }
 
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
-        System.out.println("Configuring CORS...");
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(List.of("http://localhost:3000", "http://localhost:8080", "http://localhost:5174", "http://localhost:5173", "https://main.d1qzxbk15yylkm.amplifyapp.com"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
@@ -65,7 +75,6 @@ public class SecurityConfig {
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
-        System.out.println("CORS configured successfully");
         return source;
     }
 
@@ -74,9 +83,14 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    // Each +1 on the strength doubles the cost of a hash, existing hashes are re-encoded on the next login
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(@Value("${bcrypt_strength:10}") int strength,
+                                           @Value("${password_hash_threads:0}") int threads,
+                                           @Value("${password_hash_queue:64}") int queueCapacity,
+                                           @Value("${password_hash_timeout:PT5S}") Duration timeout){
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueCapacity, timeout);
     }
 
 
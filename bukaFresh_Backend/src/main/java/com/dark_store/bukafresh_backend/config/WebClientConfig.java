@@ -1,14 +1,49 @@
 package com.dark_store.bukafresh_backend.config;
 
+import io.netty.channel.ChannelOption;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
+@RequiredArgsConstructor
 public class WebClientConfig {
 
+    private final OnePipeProperties onePipeProperties;
+
+    // Bounded pool so billing-day bursts queue for a connection instead of opening unbounded sockets.
+    // metrics(true) publishes reactor.netty.connection.provider.* gauges (active, idle, pending) per pool.
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider onePipeConnectionProvider() {
+        OnePipeProperties.Http http = onePipeProperties.getHttp();
+        return ConnectionProvider.builder("onepipe")
+                .maxConnections(http.getMaxConnections())
+                .pendingAcquireMaxCount(http.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(http.getPendingAcquireTimeout())
+                .maxIdleTime(http.getMaxIdleTime())
+                .maxLifeTime(http.getMaxLifeTime())
+                .evictInBackground(http.getEvictInterval())
+                .metrics(true)
+                .build();
+    }
+
     @Bean
-    public WebClient webClient() {
-        return WebClient.builder().build();
+    public WebClient webClient(ConnectionProvider onePipeConnectionProvider) {
+        OnePipeProperties.Http http = onePipeProperties.getHttp();
+        HttpClient httpClient = HttpClient.create(onePipeConnectionProvider)
+                // HTTP/2 is negotiated over TLS when OnePipe offers it, otherwise HTTP/1.1 keep-alive
+                .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+                .responseTimeout(http.getResponseTimeout());
+
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -2,16 +2,24 @@ package com.dark_store.bukafresh_backend.controller;
 
 import com.dark_store.bukafresh_backend.dto.request.ProcessPaymentRequest;
 import com.dark_store.bukafresh_backend.dto.response.ApiResponse;
+import com.dark_store.bukafresh_backend.dto.response.PaymentPageResponse;
 import com.dark_store.bukafresh_backend.dto.response.PaymentResponse;
+import com.dark_store.bukafresh_backend.service.IdempotencyService;
 import com.dark_store.bukafresh_backend.service.PaymentService;
 import com.dark_store.bukafresh_backend.util.CurrentUserUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -20,18 +28,63 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/process")
-    public ResponseEntity<ApiResponse<PaymentResponse>> processPayment(
+    public Mono<ResponseEntity<ApiResponse<PaymentResponse>>> processPayment(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody ProcessPaymentRequest request) {
         
         log.info("Processing payment for subscription: {}", request.getSubscriptionId());
         
-        PaymentResponse response = paymentService.processPayment(request);
-        
+        // The servlet thread is released while OnePipe responds, the result is written on async dispatch.
+        // A retried request with the same key gets the first attempt's payment, as it stands now, instead of a second debit.
+        return idempotencyService.execute("payments.process:" + CurrentUserUtil.getCurrentUserId(), idempotencyKey,
+                        request, PaymentResponse.class, paymentService.processPayment(request, idempotencyKey), paymentService::refresh)
+                .map(response -> !"PAID".equals(response.getStatus())
+                        // OnePipe is unavailable and the payment was queued, or an earlier attempt is still being debited
+                        ? ResponseEntity.accepted()
+                                .location(URI.create("/api/payments/reference/" + response.getPaymentReference()))
+                                .body(ApiResponse.<PaymentResponse>builder()
+                                        .success(true)
+                                        .message("Payment queued for processing")
+                                        .data(response)
+                                        .build())
+                        : ResponseEntity.ok(ApiResponse.<PaymentResponse>builder()
+                                .success(true)
+                                .message("Payment processed successfully")
+                                .data(response)
+                                .build()));
+    }
+
+    @PostMapping("/process-async")
+    public ResponseEntity<ApiResponse<PaymentResponse>> submitPayment(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody ProcessPaymentRequest request) {
+
+        log.info("Submitting payment for subscription: {}", request.getSubscriptionId());
+
+        PaymentResponse response = idempotencyService.executeBlocking(
+                "payments.submit:" + CurrentUserUtil.getCurrentUserId(), idempotencyKey,
+                request, PaymentResponse.class, () -> paymentService.submitPayment(request, idempotencyKey), paymentService::refresh);
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/payments/reference/" + response.getPaymentReference()))
+                .body(ApiResponse.<PaymentResponse>builder()
+                        .success(true)
+                        .message("Payment accepted for processing")
+                        .data(response)
+                        .build());
+    }
+
+    @GetMapping("/reference/{paymentReference}")
+    public ResponseEntity<ApiResponse<PaymentResponse>> getPaymentByReference(@PathVariable String paymentReference) {
+        PaymentResponse response = paymentService.getPaymentByReference(paymentReference);
+
         return ResponseEntity.ok(ApiResponse.<PaymentResponse>builder()
                 .success(true)
-                .message("Payment processed successfully")
+                .message("Payment retrieved successfully")
                 .data(response)
                 .build());
     }
@@ -48,24 +101,47 @@ public class PaymentController {
     }
 
     @GetMapping("/user")
-    public ResponseEntity<ApiResponse<List<PaymentResponse>>> getUserPayments() {
+    public ResponseEntity<ApiResponse<PaymentPageResponse>> getUserPayments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         String userId = CurrentUserUtil.getCurrentUserId();
-        List<PaymentResponse> payments = paymentService.getUserPayments(userId);
+        PaymentPageResponse payments = paymentService.getUserPayments(userId, cursor, size);
         
-        return ResponseEntity.ok(ApiResponse.<List<PaymentResponse>>builder()
+        return ResponseEntity.ok(ApiResponse.<PaymentPageResponse>builder()
                 .success(true)
                 .message("User payments retrieved successfully")
                 .data(payments)
                 .build());
     }
 
+    @GetMapping(value = "/user/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportUserPayments() {
+        String userId = CurrentUserUtil.getCurrentUserId();
+
+        // One JSON document per line, written batch by batch so memory stays flat however long the history is
+        StreamingResponseBody body = out -> paymentService.exportUserPayments(userId, payment -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(payment));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @GetMapping("/subscription/{subscriptionId}")
-    public ResponseEntity<ApiResponse<List<PaymentResponse>>> getSubscriptionPayments(
-            @PathVariable String subscriptionId) {
+    public ResponseEntity<ApiResponse<PaymentPageResponse>> getSubscriptionPayments(
+            @PathVariable String subscriptionId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         
-        List<PaymentResponse> payments = paymentService.getSubscriptionPayments(subscriptionId);
+        PaymentPageResponse payments = paymentService.getSubscriptionPayments(subscriptionId, cursor, size);
         
-        return ResponseEntity.ok(ApiResponse.<List<PaymentResponse>>builder()
+        return ResponseEntity.ok(ApiResponse.<PaymentPageResponse>builder()
                 .success(true)
                 .message("Subscription payments retrieved successfully")
                 .data(payments)
@@ -3,6 +3,7 @@ package com.dark_store.bukafresh_backend.controller;
 import com.dark_store.bukafresh_backend.dto.request.CreateSubscriptionRequest;
 import com.dark_store.bukafresh_backend.dto.response.ApiResponse;
 import com.dark_store.bukafresh_backend.dto.response.SubscriptionResponse;
+import com.dark_store.bukafresh_backend.service.IdempotencyService;
 import com.dark_store.bukafresh_backend.service.SubscriptionService;
 import com.dark_store.bukafresh_backend.util.CurrentUserUtil;
 import jakarta.validation.Valid;
@@ -23,6 +24,7 @@ import java.util.List;
 public class SubscriptionController {
 
     private final SubscriptionService subscriptionService;
+    private final IdempotencyService idempotencyService;
 
     // Simple test endpoint
     @GetMapping("/test")
@@ -36,11 +38,15 @@ public class SubscriptionController {
     @PostMapping
     @PreAuthorize("hasAuthority('USER_PROFILE_UPDATE')")
     public ResponseEntity<ApiResponse<SubscriptionResponse>> createSubscription(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody CreateSubscriptionRequest request) {
         
         log.info("Creating subscription for tier: {}", request.getTier());
         
-        SubscriptionResponse response = subscriptionService.createSubscription(request);
+        // A retried request with the same key gets the subscription created by the first attempt
+        SubscriptionResponse response = idempotencyService.executeBlocking(
+                "subscriptions.create:" + CurrentUserUtil.getCurrentUserId(), idempotencyKey,
+                request, SubscriptionResponse.class, () -> subscriptionService.createSubscription(request));
         
         return ResponseEntity.ok(ApiResponse.success(
                 "Subscription created successfully",
@@ -0,0 +1,15 @@
+package com.dark_store.bukafresh_backend.dto.billing;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class BillingDateUpdate {
+    private String subscriptionId;
+    private LocalDate nextBillingDate;
+    private LocalDateTime updatedAt;
+}
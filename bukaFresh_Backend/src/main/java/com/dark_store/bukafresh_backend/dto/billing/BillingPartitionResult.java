@@ -0,0 +1,16 @@
+package com.dark_store.bukafresh_backend.dto.billing;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BillingPartitionResult {
+    private int partitionIndex;
+    private int processed;
+    private int failed;
+    private List<BillingWriteFailure> failures;
+    private long durationMs;
+}
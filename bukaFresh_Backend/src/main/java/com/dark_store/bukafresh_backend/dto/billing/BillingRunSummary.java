@@ -0,0 +1,19 @@
+package com.dark_store.bukafresh_backend.dto.billing;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+public class BillingRunSummary {
+    private String runId;
+    private LocalDate billingDate;
+    private int partitions;
+    private long processed;
+    private long failed;
+    private List<BillingWriteFailure> failures;
+    private long durationMs;
+}
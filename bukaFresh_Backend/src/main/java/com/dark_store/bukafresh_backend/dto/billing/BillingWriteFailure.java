@@ -0,0 +1,11 @@
+package com.dark_store.bukafresh_backend.dto.billing;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BillingWriteFailure {
+    private String subscriptionId;
+    private String reason;
+}
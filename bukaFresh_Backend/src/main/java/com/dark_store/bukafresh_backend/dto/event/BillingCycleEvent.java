@@ -0,0 +1,47 @@
+package com.dark_store.bukafresh_backend.dto.event;
+
+import com.dark_store.bukafresh_backend.model.BillingCycle;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillingCycleEvent {
+    private String cycleKey;
+    private String subscriptionId;
+    private String userId;
+    private String tier;
+    private LocalDate billingDate;
+    private BigDecimal amount;
+    private String stage;
+    private String paymentReference;
+    private String orderId;
+    private LocalDate deliveryDate;
+    private String failureReason;
+    private LocalDateTime updatedAt;
+
+    public static BillingCycleEvent of(BillingCycle cycle) {
+        return BillingCycleEvent.builder()
+                .cycleKey(cycle.getCycleKey())
+                .subscriptionId(cycle.getSubscriptionId())
+                .userId(cycle.getUserId())
+                .tier(cycle.getTier())
+                .billingDate(cycle.getBillingDate())
+                .amount(cycle.getAmount())
+                .stage(cycle.getStage())
+                .paymentReference(cycle.getPaymentReference())
+                .orderId(cycle.getOrderId())
+                .deliveryDate(cycle.getDeliveryDate())
+                .failureReason(cycle.getFailureReason())
+                .updatedAt(cycle.getUpdatedAt())
+                .build();
+    }
+}
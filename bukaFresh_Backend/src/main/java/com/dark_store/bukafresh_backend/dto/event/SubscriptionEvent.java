@@ -0,0 +1,36 @@
+package com.dark_store.bukafresh_backend.dto.event;
+
+import com.dark_store.bukafresh_backend.model.Subscription;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubscriptionEvent {
+    private String subscriptionId;
+    private String userId;
+    private String tier;
+    private String billingCycle;
+    private String status;
+    private LocalDate nextBillingDate;
+    private LocalDateTime updatedAt;
+
+    public static SubscriptionEvent of(Subscription subscription) {
+        return SubscriptionEvent.builder()
+                .subscriptionId(subscription.getId())
+                .userId(subscription.getUserId())
+                .tier(subscription.getTier())
+                .billingCycle(subscription.getBillingCycle())
+                .status(subscription.getStatus())
+                .nextBillingDate(subscription.getNextBillingDate())
+                .updatedAt(subscription.getUpdatedAt())
+                .build();
+    }
+}
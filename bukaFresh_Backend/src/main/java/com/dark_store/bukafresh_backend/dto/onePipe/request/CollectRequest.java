@@ -7,7 +7,7 @@ import lombok.Data;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class CollectRequest {
 
     private String request_ref;
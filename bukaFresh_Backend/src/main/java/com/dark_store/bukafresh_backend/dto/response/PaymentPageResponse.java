@@ -0,0 +1,17 @@
+package com.dark_store.bukafresh_backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentPageResponse {
+    private List<PaymentResponse> items;
+    private String nextCursor; // null on the last page
+}
@@ -1,13 +1,17 @@
 package com.dark_store.bukafresh_backend.dto.response;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class SubscriptionResponse {
     private String id;
     private String userId;
@@ -22,6 +26,8 @@ public class SubscriptionResponse {
 
     @Data
     @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
     public static class PlanDetails {
         private String name;
         private String description;
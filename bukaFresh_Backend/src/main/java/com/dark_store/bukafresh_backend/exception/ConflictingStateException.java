@@ -0,0 +1,8 @@
+package com.dark_store.bukafresh_backend.exception;
+
+// Refused because of the current state, before anything was changed
+public class ConflictingStateException extends BusinessException {
+    public ConflictingStateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.dark_store.bukafresh_backend.exception;
+
+public class IdempotencyKeyMismatchException extends RuntimeException {
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
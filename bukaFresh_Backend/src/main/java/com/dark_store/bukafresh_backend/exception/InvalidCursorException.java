@@ -0,0 +1,7 @@
+package com.dark_store.bukafresh_backend.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.dark_store.bukafresh_backend.exception;
+
+public class InvalidIdempotencyKeyException extends RuntimeException {
+    public InvalidIdempotencyKeyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.dark_store.bukafresh_backend.exception;
+
+// A dependency failed before the request changed anything, the same request can be sent again
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.dark_store.bukafresh_backend.exception;
+
+public class TooManyRequestsException extends RuntimeException {
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
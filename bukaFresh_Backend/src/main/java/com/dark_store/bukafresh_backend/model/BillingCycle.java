@@ -0,0 +1,52 @@
+package com.dark_store.bukafresh_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// One billing period of a subscription as it moves through collect -> order -> delivery.
+// The cycle key makes every stage idempotent: re-running a cycle never charges or orders twice.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "billing_cycles")
+// Recovery sweep: cycles that stopped moving
+@CompoundIndex(name = "stage_updatedAt", def = "{'stage': 1, 'updatedAt': 1}")
+public class BillingCycle {
+    @Id
+    private String id;
+
+    @Indexed(unique = true)
+    private String cycleKey; // subscriptionId:billingDate
+
+    private String subscriptionId;
+    private String userId;
+    private String tier;
+    private LocalDate billingDate;
+    private BigDecimal amount;
+    private String mandateId;
+
+    private String stage; // COLLECT_PENDING, COLLECTING, PAID, COLLECTION_FAILED, ORDERED, SCHEDULED
+    private int collectAttempts;
+    private String paymentReference;
+    private String orderId;
+    private LocalDate deliveryDate;
+    private String failureReason;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public static String keyOf(String subscriptionId, LocalDate billingDate) {
+        return subscriptionId + ":" + billingDate;
+    }
+}
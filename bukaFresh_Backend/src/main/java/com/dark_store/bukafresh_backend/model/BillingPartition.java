@@ -0,0 +1,47 @@
+package com.dark_store.bukafresh_backend.model;
+
+import com.dark_store.bukafresh_backend.dto.billing.BillingWriteFailure;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "billing_partitions")
+@CompoundIndexes({
+        @CompoundIndex(name = "runId_index", def = "{'runId': 1, 'index': 1}", unique = true),
+        // Work queue: claimable partitions in publish order
+        @CompoundIndex(name = "status_createdAt", def = "{'status': 1, 'createdAt': 1}")
+})
+public class BillingPartition {
+    @Id
+    private String id;
+    private String runId;
+    private int index;
+    private LocalDate billingDate;
+    private List<String> subscriptionIds;
+
+    private String status; // PENDING, LEASED, COMPLETED, FAILED, CANCELED
+    private String owner;
+    private LocalDateTime leaseExpiresAt;
+    private int attempts;
+
+    private int processed;
+    private int failed;
+    private List<BillingWriteFailure> failures;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,60 @@
+package com.dark_store.bukafresh_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "billing_runs")
+@CompoundIndex(name = "billingDate_status", def = "{'billingDate': 1, 'status': 1}")
+public class BillingRun {
+    @Id
+    private String id;
+    private LocalDate billingDate;
+    @Indexed
+    private String status; // RUNNING, COMPLETED, ABANDONED
+
+    // Token of the coordinator lease that currently owns the run
+    private Long fencingToken;
+
+    // Every due subscription with an _id up to here has been billed
+    private String checkpointSubscriptionId;
+    private int nextPartitionIndex;
+
+    private long processed;
+    private long failed;
+
+    // Partitions past the checkpoint, completed ones are dropped once the checkpoint moves over them
+    @Builder.Default
+    private List<Partition> partitions = new ArrayList<>();
+
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Partition {
+        private int index;
+        private String firstSubscriptionId;
+        private String lastSubscriptionId;
+        private String status; // RUNNING, COMPLETED, FAILED
+        private int processed;
+        private int failed;
+    }
+}
@@ -0,0 +1,36 @@
+package com.dark_store.bukafresh_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+    @Id
+    private String id; // <scope>:<Idempotency-Key>
+
+    private String fingerprint; // SHA-256 of the request body
+    private String status; // IN_PROGRESS, COMPLETED
+    private String owner; // Execution holding the key
+    private LocalDateTime lockedUntil;
+    private String response; // JSON
+    private String errorType; // BUSINESS or INTERNAL when the request failed, replayed as the same error
+    private String errorMessage;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+
+    // Removed by Mongo once the replay window has passed
+    @Indexed(expireAfter = "0s")
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,26 @@
+package com.dark_store.bukafresh_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "leases")
+// Named single-holder leases: the billing coordinator and the outbox relay
+public class Lease {
+    @Id
+    private String id; // lease name
+    private String owner;
+
+    // Bumped on every acquisition so writes from an expired holder can be rejected
+    private long fencingToken;
+    private LocalDateTime expiresAt;
+}
@@ -3,6 +3,7 @@ package com.dark_store.bukafresh_backend.model;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
@@ -16,6 +17,11 @@ public class Order {
     @Id
     private String id;
     private String subscriptionId;
+    private String userId;
+    private String tier;
+    // One order per billing cycle, repeated order stage runs find the existing one
+    @Indexed(unique = true, sparse = true)
+    private String cycleKey;
     private LocalDate deliveryDate;
     private List<OrderItem> products;
     private String status; // PENDING, SCHEDULED, DELIVERED, CANCELED
@@ -0,0 +1,36 @@
+package com.dark_store.bukafresh_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "outbox_events")
+// Relay queue: unpublished events in write order
+@CompoundIndex(name = "status_createdAt_sequence", def = "{'status': 1, 'createdAt': 1, 'sequence': 1}")
+public class OutboxEvent {
+    @Id
+    private String id;
+    private String aggregateType; // PAYMENT, SUBSCRIPTION
+    private String aggregateId;
+    private String eventType;
+    private String payload; // JSON
+    private long sequence; // Per aggregate, consecutive from 1
+
+    private String status; // PENDING, PUBLISHED
+    private LocalDateTime createdAt;
+
+    // Published events are kept for a week for replays and then removed by Mongo
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime publishedAt;
+}
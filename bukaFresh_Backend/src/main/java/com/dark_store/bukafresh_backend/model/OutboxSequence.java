@@ -0,0 +1,23 @@
+package com.dark_store.bukafresh_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "outbox_sequences")
+public class OutboxSequence {
+    @Id
+    private String id; // <aggregateType>:<aggregateId>
+
+    private long sequence; // Of the aggregate's latest event
+    private LocalDateTime createdAt; // Of the aggregate's latest event, never moves backwards
+}
@@ -5,6 +5,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
@@ -15,6 +18,13 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "payments")
+@CompoundIndexes({
+        // Payment history, newest first
+        @CompoundIndex(name = "userId_createdAt_id", def = "{'userId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "subscriptionId_createdAt_id", def = "{'subscriptionId': 1, 'createdAt': -1, '_id': -1}"),
+        // Status lookups and the queued-payment retrier, oldest first
+        @CompoundIndex(name = "status_updatedAt", def = "{'status': 1, 'updatedAt': 1}")
+})
 public class Payment {
     @Id
     private String id;
@@ -34,7 +44,10 @@ public class Payment {
     
     // Payment status and tracking
     private String status; // PENDING, PROCESSING, PAID, FAILED
+    private String source; // CHECKOUT, or BILLING for recurring collections driven by their billing cycle
+    @Indexed(unique = true)
     private String paymentReference;
+    @Indexed(sparse = true)
     private String onePipeReference;
     private String failureReason;
     
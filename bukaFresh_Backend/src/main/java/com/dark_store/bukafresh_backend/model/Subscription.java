@@ -3,6 +3,9 @@ package com.dark_store.bukafresh_backend.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
@@ -11,14 +14,21 @@ import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "subscriptions")
+@CompoundIndexes({
+        // Billing cursor: equality on status, walk in _id order, range on nextBillingDate
+        @CompoundIndex(name = "status_id_nextBillingDate", def = "{'status': 1, '_id': 1, 'nextBillingDate': 1}"),
+        @CompoundIndex(name = "status_nextBillingDate", def = "{'status': 1, 'nextBillingDate': 1}")
+})
 public class Subscription {
     @Id
     private String id;
+    @Indexed
     private String userId;
     private String tier;
     private String status;
     private BigDecimal price;
     private String billingCycle;
+    // Covered by the status_nextBillingDate prefix, billing always filters on status
     private LocalDate nextBillingDate;
     private String mandateId;
     private LocalDateTime createdAt;
@@ -2,6 +2,7 @@ package com.dark_store.bukafresh_backend.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -21,6 +22,7 @@ public class User implements UserDetails {
     @Id
     private String id;
 
+    @Indexed(unique = true)
     private String email;
     private String password;
     private Role role;
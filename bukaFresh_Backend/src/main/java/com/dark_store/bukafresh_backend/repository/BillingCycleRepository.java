@@ -0,0 +1,13 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.BillingCycle;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface BillingCycleRepository extends MongoRepository<BillingCycle, String>, BillingCycleRepositoryCustom {
+    List<BillingCycle> findByStageInAndUpdatedAtBefore(Collection<String> stages, LocalDateTime before, Pageable pageable);
+}
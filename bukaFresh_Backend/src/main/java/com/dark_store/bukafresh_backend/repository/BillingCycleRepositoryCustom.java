@@ -0,0 +1,22 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.BillingCycle;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface BillingCycleRepositoryCustom {
+    // Inserts the cycle unless one with the same key exists, and returns whichever is stored
+    BillingCycle open(BillingCycle cycle);
+
+    // Takes a pending cycle, or one whose collection stalled before staleBefore, into COLLECTING
+    Optional<BillingCycle> claimCollection(String cycleId, LocalDateTime staleBefore);
+
+    // Moves the cycle on only if it is still in the expected stage, empty if another worker got there first
+    Optional<BillingCycle> advance(String cycleId, String fromStage, String toStage, Update changes);
+
+    // Moves a cycle out of COLLECTING only while the claim that made the given attempt still owns it,
+    // empty once the cycle was taken over by a later claim
+    Optional<BillingCycle> advanceCollection(String cycleId, int collectAttempt, String toStage, Update changes);
+}
@@ -0,0 +1,83 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.BillingCycle;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class BillingCycleRepositoryCustomImpl implements BillingCycleRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public BillingCycle open(BillingCycle cycle) {
+        Update update = new Update()
+                .setOnInsert("subscriptionId", cycle.getSubscriptionId())
+                .setOnInsert("userId", cycle.getUserId())
+                .setOnInsert("tier", cycle.getTier())
+                .setOnInsert("billingDate", cycle.getBillingDate())
+                .setOnInsert("amount", cycle.getAmount())
+                .setOnInsert("mandateId", cycle.getMandateId())
+                .setOnInsert("stage", cycle.getStage())
+                .setOnInsert("collectAttempts", 0)
+                .setOnInsert("createdAt", cycle.getCreatedAt())
+                .setOnInsert("updatedAt", cycle.getUpdatedAt());
+
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("cycleKey").is(cycle.getCycleKey())),
+                update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                BillingCycle.class);
+    }
+
+    @Override
+    public Optional<BillingCycle> claimCollection(String cycleId, LocalDateTime staleBefore) {
+        Query query = claimCollectionQuery(cycleId, staleBefore);
+
+        Update update = new Update()
+                .set("stage", "COLLECTING")
+                .set("updatedAt", LocalDateTime.now())
+                .inc("collectAttempts", 1);
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), BillingCycle.class));
+    }
+
+    @Override
+    public Optional<BillingCycle> advance(String cycleId, String fromStage, String toStage, Update changes) {
+        return advance(Query.query(Criteria.where("_id").is(cycleId).and("stage").is(fromStage)), toStage, changes);
+    }
+
+    @Override
+    public Optional<BillingCycle> advanceCollection(String cycleId, int collectAttempt, String toStage, Update changes) {
+        return advance(advanceCollectionQuery(cycleId, collectAttempt), toStage, changes);
+    }
+
+    // Shared with MongoIndexInitializer, which explains the exact filter this repository runs
+    public static Query claimCollectionQuery(String cycleId, LocalDateTime staleBefore) {
+        return Query.query(Criteria.where("_id").is(cycleId).orOperator(
+                Criteria.where("stage").is("COLLECT_PENDING"),
+                Criteria.where("stage").is("COLLECTING").and("updatedAt").lt(staleBefore)));
+    }
+
+    // Every claim bumps collectAttempts, so it doubles as the fencing token of the current claim
+    public static Query advanceCollectionQuery(String cycleId, int collectAttempt) {
+        return Query.query(Criteria.where("_id").is(cycleId)
+                .and("stage").is("COLLECTING")
+                .and("collectAttempts").is(collectAttempt));
+    }
+
+    private Optional<BillingCycle> advance(Query query, String toStage, Update changes) {
+        changes.set("stage", toStage).set("updatedAt", LocalDateTime.now());
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, changes, FindAndModifyOptions.options().returnNew(true), BillingCycle.class));
+    }
+}
@@ -0,0 +1,14 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.BillingPartition;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface BillingPartitionRepository extends MongoRepository<BillingPartition, String>, BillingPartitionRepositoryCustom {
+    List<BillingPartition> findByRunIdAndIndexIn(String runId, Collection<Integer> indexes);
+
+    Optional<BillingPartition> findFirstByRunIdOrderByIndexDesc(String runId);
+}
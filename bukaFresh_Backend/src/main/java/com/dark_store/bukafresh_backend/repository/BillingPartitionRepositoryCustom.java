@@ -0,0 +1,23 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.dto.billing.BillingWriteFailure;
+import com.dark_store.bukafresh_backend.model.BillingPartition;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+public interface BillingPartitionRepositoryCustom {
+
+    // Leases the oldest pending partition, or one whose previous worker let its lease expire
+    Optional<BillingPartition> claimNext(String owner, Duration leaseTtl, int maxAttempts);
+
+    // Extends the lease of the claim made at the given attempt, false once another worker has taken it over
+    boolean renew(String partitionId, String owner, int attempt, Duration leaseTtl);
+
+    // Only applies while the caller still holds the claim made at the given attempt
+    boolean finish(String partitionId, String owner, int attempt, String status, int processed, int failed,
+                   List<BillingWriteFailure> failures);
+
+    void cancelPending(String runId);
+}
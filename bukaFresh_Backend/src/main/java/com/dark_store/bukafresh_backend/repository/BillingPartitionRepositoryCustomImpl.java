@@ -0,0 +1,92 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.dto.billing.BillingWriteFailure;
+import com.dark_store.bukafresh_backend.model.BillingPartition;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class BillingPartitionRepositoryCustomImpl implements BillingPartitionRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<BillingPartition> claimNext(String owner, Duration leaseTtl, int maxAttempts) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = claimNextQuery(now, maxAttempts);
+
+        Update update = new Update()
+                .set("status", "LEASED")
+                .set("owner", owner)
+                .set("leaseExpiresAt", now.plus(leaseTtl))
+                .set("updatedAt", now)
+                .inc("attempts", 1);
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), BillingPartition.class));
+    }
+
+    @Override
+    public boolean renew(String partitionId, String owner, int attempt, Duration leaseTtl) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("leaseExpiresAt", now.plus(leaseTtl))
+                .set("updatedAt", now);
+
+        return mongoTemplate.updateFirst(claimedBy(partitionId, owner, attempt), update, BillingPartition.class)
+                .getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean finish(String partitionId, String owner, int attempt, String status, int processed, int failed,
+                          List<BillingWriteFailure> failures) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = claimedBy(partitionId, owner, attempt);
+
+        Update update = new Update()
+                .set("status", status)
+                .set("processed", processed)
+                .set("failed", failed)
+                .set("failures", failures)
+                .set("completedAt", now)
+                .set("updatedAt", now);
+
+        return mongoTemplate.updateFirst(query, update, BillingPartition.class).getMatchedCount() > 0;
+    }
+
+    // Every claim bumps attempts, so it fences out this node's own earlier claim as well as other nodes
+    private Query claimedBy(String partitionId, String owner, int attempt) {
+        return Query.query(Criteria.where("_id").is(partitionId)
+                .and("owner").is(owner)
+                .and("status").is("LEASED")
+                .and("attempts").is(attempt));
+    }
+
+    // Shared with MongoIndexInitializer, which explains the exact filter this repository runs
+    public static Query claimNextQuery(LocalDateTime now, int maxAttempts) {
+        return Query.query(new Criteria().orOperator(
+                        Criteria.where("status").is("PENDING"),
+                        Criteria.where("status").is("LEASED").and("leaseExpiresAt").lt(now)
+                ).and("attempts").lt(maxAttempts))
+                .with(Sort.by("createdAt"));
+    }
+
+    @Override
+    public void cancelPending(String runId) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("runId").is(runId).and("status").is("PENDING")),
+                new Update().set("status", "CANCELED").set("updatedAt", LocalDateTime.now()),
+                BillingPartition.class
+        );
+    }
+}
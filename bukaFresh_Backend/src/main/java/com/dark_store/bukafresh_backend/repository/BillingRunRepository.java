@@ -0,0 +1,14 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.BillingRun;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface BillingRunRepository extends MongoRepository<BillingRun, String>, BillingRunRepositoryCustom {
+    Optional<BillingRun> findFirstByBillingDateAndStatus(LocalDate billingDate, String status);
+
+    List<BillingRun> findByStatus(String status);
+}
@@ -0,0 +1,12 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.BillingRun;
+
+public interface BillingRunRepositoryCustom {
+
+    // Hands the run to a newer coordinator, fails if an even newer one already owns it
+    boolean claim(String runId, long fencingToken);
+
+    // Replaces the ledger entry only while it still carries the caller's fencing token
+    boolean saveFenced(BillingRun run);
+}
@@ -0,0 +1,31 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.BillingRun;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+@RequiredArgsConstructor
+public class BillingRunRepositoryCustomImpl implements BillingRunRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean claim(String runId, long fencingToken) {
+        Query query = Query.query(Criteria.where("_id").is(runId).orOperator(
+                Criteria.where("fencingToken").lt(fencingToken),
+                Criteria.where("fencingToken").isNull()
+        ));
+        return mongoTemplate.updateFirst(query, new Update().set("fencingToken", fencingToken), BillingRun.class)
+                .getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean saveFenced(BillingRun run) {
+        Query query = Query.query(Criteria.where("_id").is(run.getId())
+                .and("fencingToken").is(run.getFencingToken()));
+        return mongoTemplate.findAndReplace(query, run) != null;
+    }
+}
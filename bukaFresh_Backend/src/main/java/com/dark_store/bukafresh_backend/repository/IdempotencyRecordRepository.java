@@ -0,0 +1,7 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.IdempotencyRecord;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface IdempotencyRecordRepository extends MongoRepository<IdempotencyRecord, String>, IdempotencyRecordRepositoryCustom {
+}
@@ -0,0 +1,17 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.IdempotencyRecord;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepositoryCustom {
+    // Takes the key for the record's owner if it is new or its previous holder's lock ran out before now.
+    // Throws DuplicateKeyException if the key is held, completed or was used with a different request.
+    IdempotencyRecord claim(IdempotencyRecord record, LocalDateTime now);
+
+    // Stores the response or the error it ended with, false if the owner lost the key in the meantime
+    boolean complete(String id, String owner, String response, String errorType, String errorMessage, LocalDateTime completedAt);
+
+    // Gives the key back after a request refused before it changed anything, so a retry runs again
+    void release(String id, String owner);
+}
@@ -0,0 +1,65 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.IdempotencyRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+public class IdempotencyRecordRepositoryCustomImpl implements IdempotencyRecordRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public IdempotencyRecord claim(IdempotencyRecord record, LocalDateTime now) {
+        Query query = claimQuery(record.getId(), record.getFingerprint(), now);
+
+        Update update = new Update()
+                .set("owner", record.getOwner())
+                .set("lockedUntil", record.getLockedUntil())
+                .setOnInsert("createdAt", record.getCreatedAt())
+                .setOnInsert("expiresAt", record.getExpiresAt());
+
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                IdempotencyRecord.class);
+    }
+
+    // Matches only a stale claim of the same request, anything else stored under the id makes the upsert
+    // collide on _id, so taking over and inserting are one atomic step.
+    // Shared with MongoIndexInitializer, which explains the exact filter this repository runs.
+    public static Query claimQuery(String id, String fingerprint, LocalDateTime now) {
+        return Query.query(Criteria.where("_id").is(id)
+                .and("fingerprint").is(fingerprint)
+                .and("status").is("IN_PROGRESS")
+                .and("lockedUntil").lt(now));
+    }
+
+    @Override
+    public boolean complete(String id, String owner, String response, String errorType, String errorMessage,
+                            LocalDateTime completedAt) {
+        Update update = new Update()
+                .set("status", "COMPLETED")
+                .set("response", response)
+                .set("errorType", errorType)
+                .set("errorMessage", errorMessage)
+                .set("completedAt", completedAt)
+                .unset("lockedUntil");
+
+        return mongoTemplate.updateFirst(ownedBy(id, owner), update, IdempotencyRecord.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public void release(String id, String owner) {
+        mongoTemplate.remove(ownedBy(id, owner), IdempotencyRecord.class);
+    }
+
+    private Query ownedBy(String id, String owner) {
+        return Query.query(Criteria.where("_id").is(id).and("owner").is(owner).and("status").is("IN_PROGRESS"));
+    }
+}
@@ -0,0 +1,14 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public interface LeaseRepositoryCustom {
+
+    // Returns the new fencing token, or empty while another owner holds an unexpired lease
+    Optional<Long> tryAcquire(String name, String owner, Duration ttl);
+
+    boolean renew(String name, String owner, long fencingToken, Duration ttl);
+
+    void release(String name, String owner, long fencingToken);
+}
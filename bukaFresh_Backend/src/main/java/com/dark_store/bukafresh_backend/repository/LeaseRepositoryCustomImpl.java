@@ -0,0 +1,66 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.Lease;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class LeaseRepositoryCustomImpl implements LeaseRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<Long> tryAcquire(String name, String owner, Duration ttl) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(name).orOperator(
+                Criteria.where("expiresAt").lt(now),
+                Criteria.where("owner").is(owner)
+        ));
+        Update update = new Update()
+                .set("owner", owner)
+                .set("expiresAt", now.plus(ttl))
+                .inc("fencingToken", 1);
+
+        try {
+            // A live lease held elsewhere fails the filter, and the upsert then collides on _id
+            Lease lease = mongoTemplate.findAndModify(
+                    query, update, FindAndModifyOptions.options().upsert(true).returnNew(true), Lease.class);
+            return Optional.ofNullable(lease).map(Lease::getFencingToken);
+        } catch (DuplicateKeyException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean renew(String name, String owner, long fencingToken, Duration ttl) {
+        return mongoTemplate.updateFirst(
+                heldBy(name, owner, fencingToken),
+                new Update().set("expiresAt", LocalDateTime.now().plus(ttl)),
+                Lease.class
+        ).getMatchedCount() > 0;
+    }
+
+    @Override
+    public void release(String name, String owner, long fencingToken) {
+        mongoTemplate.updateFirst(
+                heldBy(name, owner, fencingToken),
+                new Update().set("expiresAt", LocalDateTime.now()),
+                Lease.class
+        );
+    }
+
+    private Query heldBy(String name, String owner, long fencingToken) {
+        return Query.query(Criteria.where("_id").is(name)
+                .and("owner").is(owner)
+                .and("fencingToken").is(fencingToken));
+    }
+}
@@ -4,6 +4,9 @@ import com.dark_store.bukafresh_backend.model.Order;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface OrderRepository extends MongoRepository<Order, String> {
+    Optional<Order> findByCycleKey(String cycleKey);
 }
@@ -0,0 +1,11 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface OutboxEventRepository extends MongoRepository<OutboxEvent, String>, OutboxEventRepositoryCustom {
+    List<OutboxEvent> findByStatusOrderByCreatedAtAscSequenceAsc(String status, Pageable pageable);
+}
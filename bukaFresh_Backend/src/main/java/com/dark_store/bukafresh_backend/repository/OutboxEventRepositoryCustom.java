@@ -0,0 +1,13 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.OutboxSequence;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface OutboxEventRepositoryCustom {
+    // Next sequence and creation time for an event of the aggregate, must run in the recording transaction
+    OutboxSequence nextSequence(String aggregateType, String aggregateId, LocalDateTime now);
+
+    void markPublished(Collection<String> eventIds, LocalDateTime publishedAt);
+}
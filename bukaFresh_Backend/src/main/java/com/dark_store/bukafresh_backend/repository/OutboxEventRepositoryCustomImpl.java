@@ -0,0 +1,48 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.OutboxEvent;
+import com.dark_store.bukafresh_backend.model.OutboxSequence;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@RequiredArgsConstructor
+public class OutboxEventRepositoryCustomImpl implements OutboxEventRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public OutboxSequence nextSequence(String aggregateType, String aggregateId, LocalDateTime now) {
+        // The write locks the counter until the transaction ends, so a second transaction for the same aggregate
+        // gets its number only after this one committed. Those transactions already update the aggregate's own
+        // document, so this adds no conflicts of its own.
+        Query query = Query.query(Criteria.where("_id").is(aggregateType + ":" + aggregateId));
+        Update update = new Update()
+                .inc("sequence", 1)
+                // A replica with a clock behind the last writer's must not date its event before the earlier one
+                .max("createdAt", now);
+
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                OutboxSequence.class);
+    }
+
+    @Override
+    public void markPublished(Collection<String> eventIds, LocalDateTime publishedAt) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+
+        // One round trip for the whole batch instead of a save per event
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(eventIds)),
+                new Update().set("status", "PUBLISHED").set("publishedAt", publishedAt),
+                OutboxEvent.class);
+    }
+}
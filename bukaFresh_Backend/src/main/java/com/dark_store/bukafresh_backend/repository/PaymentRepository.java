@@ -8,9 +8,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PaymentRepository extends MongoRepository<Payment, String> {
-    List<Payment> findByUserId(String userId);
-    List<Payment> findBySubscriptionId(String subscriptionId);
+public interface PaymentRepository extends MongoRepository<Payment, String>, PaymentRepositoryCustom {
     Optional<Payment> findByPaymentReference(String paymentReference);
     Optional<Payment> findByOnePipeReference(String onePipeReference);
     List<Payment> findByStatus(String status);
@@ -0,0 +1,28 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.Payment;
+import com.dark_store.bukafresh_backend.repository.projection.PaymentSummary;
+import com.dark_store.bukafresh_backend.util.PageCursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface PaymentRepositoryCustom {
+    // Moves a payment that is not yet PAID to its final status, empty if it was already paid
+    Optional<Payment> complete(String paymentId, String status, String onePipeResponse, String failureReason);
+
+    // Parks a payment that could not reach OnePipe as PENDING, empty if it has moved on meanwhile
+    Optional<Payment> queue(String paymentId, String reason);
+
+    // Takes the longest-waiting PENDING checkout payment back to PROCESSING for another debit attempt
+    Optional<Payment> claimQueued();
+
+    // Queues PROCESSING checkout payments untouched since staleBefore again, their worker died before recording a result.
+    // Billing payments are left to their billing cycle.
+    long requeueStalled(LocalDateTime staleBefore);
+
+    // Newest first, starting after the cursor (null for the first page)
+    List<PaymentSummary> findUserPaymentPage(String userId, PageCursor after, int limit);
+    List<PaymentSummary> findSubscriptionPaymentPage(String subscriptionId, PageCursor after, int limit);
+}
@@ -0,0 +1,127 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.Payment;
+import com.dark_store.bukafresh_backend.repository.projection.PaymentSummary;
+import com.dark_store.bukafresh_backend.util.PageCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class PaymentRepositoryCustomImpl implements PaymentRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<Payment> complete(String paymentId, String status, String onePipeResponse, String failureReason) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // The debit result and the OnePipe callback can both arrive, only the first one to land a PAID counts
+        Query query = Query.query(Criteria.where("_id").is(paymentId).and("status").ne("PAID"));
+        Update update = new Update()
+                .set("status", status)
+                .set("updatedAt", now);
+        if (onePipeResponse != null) {
+            update.set("onePipeResponse", onePipeResponse);
+        }
+        if ("PAID".equals(status)) {
+            update.set("paidAt", now).unset("failureReason");
+        } else {
+            update.set("failureReason", failureReason);
+        }
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), Payment.class));
+    }
+
+    @Override
+    public Optional<Payment> queue(String paymentId, String reason) {
+        Query query = Query.query(Criteria.where("_id").is(paymentId).and("status").is("PROCESSING"));
+        Update update = new Update()
+                .set("status", "PENDING")
+                .set("failureReason", reason)
+                .set("updatedAt", LocalDateTime.now());
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), Payment.class));
+    }
+
+    @Override
+    public Optional<Payment> claimQueued() {
+        Query query = claimQueuedQuery();
+        Update update = new Update()
+                .set("status", "PROCESSING")
+                .unset("failureReason")
+                // Doubles as the claim time, requeueStalled takes the payment back if this node never finishes it
+                .set("updatedAt", LocalDateTime.now());
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), Payment.class));
+    }
+
+    @Override
+    public long requeueStalled(LocalDateTime staleBefore) {
+        Query query = requeueStalledQuery(staleBefore);
+        Update update = new Update()
+                .set("status", "PENDING")
+                .set("failureReason", "Queued, processing was interrupted")
+                .set("updatedAt", LocalDateTime.now());
+
+        return mongoTemplate.updateMulti(query, update, Payment.class).getModifiedCount();
+    }
+
+    // Shared with MongoIndexInitializer, which explains the exact filter this repository runs
+    public static Query claimQueuedQuery() {
+        return Query.query(checkout(Criteria.where("status").is("PENDING")))
+                .with(Sort.by("updatedAt"));
+    }
+
+    public static Query requeueStalledQuery(LocalDateTime staleBefore) {
+        return Query.query(checkout(Criteria.where("status").is("PROCESSING").and("updatedAt").lt(staleBefore)));
+    }
+
+    // Billing payments stay PROCESSING across collect attempts and are retried by their billing cycle,
+    // a second debit from the retrier would charge the customer twice
+    private static Criteria checkout(Criteria criteria) {
+        return criteria.and("source").ne("BILLING")
+                // Written before payments carried a source
+                .and("paymentReference").not().regex("^BILL_");
+    }
+
+    @Override
+    public List<PaymentSummary> findUserPaymentPage(String userId, PageCursor after, int limit) {
+        return findPage(Criteria.where("userId").is(userId), after, limit);
+    }
+
+    @Override
+    public List<PaymentSummary> findSubscriptionPaymentPage(String subscriptionId, PageCursor after, int limit) {
+        return findPage(Criteria.where("subscriptionId").is(subscriptionId), after, limit);
+    }
+
+    // Keyset page on the owner_createdAt_id indexes, so the cost is the same on the first and the thousandth page
+    private List<PaymentSummary> findPage(Criteria owner, PageCursor after, int limit) {
+        Criteria criteria = owner;
+        if (after != null) {
+            criteria = new Criteria().andOperator(owner, new Criteria().orOperator(
+                    Criteria.where("createdAt").lt(after.createdAt()),
+                    Criteria.where("createdAt").is(after.createdAt()).and("_id").lt(after.id())));
+        }
+
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                .limit(limit);
+
+        return mongoTemplate.query(Payment.class)
+                .as(PaymentSummary.class)
+                .matching(query)
+                .all();
+    }
+}
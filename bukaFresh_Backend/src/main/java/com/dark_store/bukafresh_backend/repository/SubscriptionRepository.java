@@ -1,13 +1,21 @@
 package com.dark_store.bukafresh_backend.repository;
 
 import com.dark_store.bukafresh_backend.model.Subscription;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface SubscriptionRepository extends MongoRepository<Subscription, String> {
-    List<Subscription> findByNextBillingDate(LocalDate date);
+public interface SubscriptionRepository extends MongoRepository<Subscription, String>, SubscriptionRepositoryCustom {
+    // Cursor-backed, the caller must close the stream
+    @Meta(cursorBatchSize = 1000)
+    Stream<Subscription> findByStatusAndNextBillingDateLessThanEqualOrderByIdAsc(String status, LocalDate date);
+
+    @Meta(cursorBatchSize = 1000)
+    Stream<Subscription> findByStatusAndNextBillingDateLessThanEqualAndIdGreaterThanOrderByIdAsc(
+            String status, LocalDate date, String afterId);
 
     List<Subscription> findByUserId(String userId);
 }
@@ -0,0 +1,19 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.dto.billing.BillingDateUpdate;
+import com.dark_store.bukafresh_backend.dto.billing.BillingWriteFailure;
+
+import com.dark_store.bukafresh_backend.model.Subscription;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface SubscriptionRepositoryCustom {
+
+    // Applies every update in one unordered bulk write and returns the ones that did not stick
+    List<BillingWriteFailure> advanceBillingDates(List<BillingDateUpdate> updates);
+
+    // Moves a PENDING subscription to ACTIVE, empty if it is missing or has moved to another status
+    Optional<Subscription> activatePending(String subscriptionId, LocalDateTime updatedAt);
+}
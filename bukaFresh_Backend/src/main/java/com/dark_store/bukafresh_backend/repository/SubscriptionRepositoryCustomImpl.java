@@ -0,0 +1,79 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.dto.billing.BillingDateUpdate;
+import com.dark_store.bukafresh_backend.dto.billing.BillingWriteFailure;
+import com.dark_store.bukafresh_backend.model.Subscription;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+@Slf4j
+public class SubscriptionRepositoryCustomImpl implements SubscriptionRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<BillingWriteFailure> advanceBillingDates(List<BillingDateUpdate> updates) {
+        if (updates.isEmpty()) {
+            return List.of();
+        }
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Subscription.class);
+        for (BillingDateUpdate update : updates) {
+            ops.updateOne(
+                    Query.query(Criteria.where("_id").is(update.getSubscriptionId())),
+                    new Update()
+                            .set("nextBillingDate", update.getNextBillingDate())
+                            .set("updatedAt", update.getUpdatedAt())
+            );
+        }
+
+        List<BillingWriteFailure> failures = new ArrayList<>();
+        try {
+            BulkWriteResult result = ops.execute();
+            if (result.getMatchedCount() < updates.size()) {
+                // Unmatched ids were deleted after they were read, there is nothing left to bill
+                log.warn("Billing date bulk write matched {} of {} subscriptions",
+                        result.getMatchedCount(), updates.size());
+            }
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failures.add(new BillingWriteFailure(
+                        updates.get(error.getIndex()).getSubscriptionId(),
+                        error.getMessage()
+                ));
+            }
+        } catch (Exception e) {
+            for (BillingDateUpdate update : updates) {
+                failures.add(new BillingWriteFailure(update.getSubscriptionId(), e.getMessage()));
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public Optional<Subscription> activatePending(String subscriptionId, LocalDateTime updatedAt) {
+        // Only the fields it owns, so a billing date written meanwhile by the bulk writer is kept
+        Query query = Query.query(Criteria.where("_id").is(subscriptionId).and("status").is("PENDING"));
+        Update update = new Update()
+                .set("status", "ACTIVE")
+                .set("updatedAt", updatedAt);
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), Subscription.class));
+    }
+}
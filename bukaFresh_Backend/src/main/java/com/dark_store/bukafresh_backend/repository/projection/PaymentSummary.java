@@ -0,0 +1,21 @@
+package com.dark_store.bukafresh_backend.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Closed projection of Payment with only the fields PaymentResponse shows, so list queries
+// leave the raw OnePipe response and the customer's BVN, names and phone number in the database
+public interface PaymentSummary {
+    String getId();
+    String getUserId();
+    String getSubscriptionId();
+    BigDecimal getAmount();
+    String getCurrency();
+    String getStatus();
+    String getPaymentReference();
+    String getBankName();
+    String getAccountNumber();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getPaidAt();
+    String getFailureReason();
+}
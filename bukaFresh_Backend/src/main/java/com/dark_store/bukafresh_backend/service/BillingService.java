@@ -0,0 +1,17 @@
+package com.dark_store.bukafresh_backend.service;
+
+import com.dark_store.bukafresh_backend.dto.billing.BillingRunSummary;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface BillingService {
+    // Empty when another node holds the coordinator lease
+    Optional<BillingRunSummary> runBilling(LocalDate billingDate);
+
+    List<BillingRunSummary> resumeInterruptedRuns();
+
+    // Claims pending partitions up to the local concurrency, returns how many were taken
+    int claimPartitions();
+}
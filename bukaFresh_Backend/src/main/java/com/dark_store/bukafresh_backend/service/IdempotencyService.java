@@ -0,0 +1,24 @@
+package com.dark_store.bukafresh_backend.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+public interface IdempotencyService {
+
+    // Runs the action once per scope and Idempotency-Key: repeats get the stored result and concurrent repeats
+    // share the running execution. A key reused with a different request is rejected, without a key the action just runs.
+    // Errors are stored and replayed like results, except ResourceNotFoundException, ConflictingStateException and
+    // ServiceUnavailableException, which the action must only throw before it changes anything: those give the key
+    // back so a retry runs again.
+    <T> Mono<T> execute(String scope, String key, Object request, Class<T> type, Mono<T> action);
+
+    // Replays pass the stored result through refresh first, for results that point at something that moves on
+    <T> Mono<T> execute(String scope, String key, Object request, Class<T> type, Mono<T> action, UnaryOperator<T> refresh);
+
+    // Same for blocking actions, the action keeps the caller's security context
+    <T> T executeBlocking(String scope, String key, Object request, Class<T> type, Supplier<T> action);
+
+    <T> T executeBlocking(String scope, String key, Object request, Class<T> type, Supplier<T> action, UnaryOperator<T> refresh);
+}
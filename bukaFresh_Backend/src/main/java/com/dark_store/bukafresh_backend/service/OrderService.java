@@ -1,4 +1,13 @@
-//package com.dark_store.bukafresh_backend.service;
-//
-//public interface OrderService {
-//}
+package com.dark_store.bukafresh_backend.service;
+
+import com.dark_store.bukafresh_backend.model.BillingCycle;
+import com.dark_store.bukafresh_backend.model.Order;
+
+import java.time.LocalDate;
+
+public interface OrderService {
+    // Creates the order of a paid billing cycle, or returns the one already created for it
+    Order createOrder(BillingCycle cycle);
+
+    Order scheduleDelivery(String orderId, LocalDate deliveryDate);
+}
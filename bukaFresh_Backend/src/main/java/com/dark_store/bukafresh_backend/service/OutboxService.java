@@ -0,0 +1,7 @@
+package com.dark_store.bukafresh_backend.service;
+
+public interface OutboxService {
+
+    // Stores the event for the relay, call it inside the transaction that makes the state change
+    void record(String aggregateType, String aggregateId, String eventType, Object payload);
+}
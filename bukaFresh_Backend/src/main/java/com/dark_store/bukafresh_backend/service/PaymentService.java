@@ -1,14 +1,28 @@
 package com.dark_store.bukafresh_backend.service;
 
 import com.dark_store.bukafresh_backend.dto.request.ProcessPaymentRequest;
+import com.dark_store.bukafresh_backend.dto.response.PaymentPageResponse;
 import com.dark_store.bukafresh_backend.dto.response.PaymentResponse;
+import reactor.core.publisher.Mono;
 
-import java.util.List;
+import java.util.function.Consumer;
 
 public interface PaymentService {
-    PaymentResponse processPayment(ProcessPaymentRequest request);
+    // With an Idempotency-Key the payment reference is derived from it, so a rerun of the same request finds the
+    // payment recorded the first time instead of debiting again. The key may be null.
+    Mono<PaymentResponse> processPayment(ProcessPaymentRequest request, String idempotencyKey);
+    // Returns as soon as the payment is recorded, the debit completes in the background
+    PaymentResponse submitPayment(ProcessPaymentRequest request, String idempotencyKey);
+    // Current state of a payment returned earlier, for replaying a stored response
+    PaymentResponse refresh(PaymentResponse response);
     PaymentResponse getPaymentById(String paymentId);
-    List<PaymentResponse> getUserPayments(String userId);
-    List<PaymentResponse> getSubscriptionPayments(String subscriptionId);
+    PaymentResponse getPaymentByReference(String paymentReference);
+    PaymentPageResponse getUserPayments(String userId, String cursor, Integer size);
+    PaymentPageResponse getSubscriptionPayments(String subscriptionId, String cursor, Integer size);
+    // Hands every payment of the user to the sink, newest first, one bounded batch in memory at a time
+    void exportUserPayments(String userId, Consumer<PaymentResponse> sink);
     PaymentResponse handleOnePipeCallback(String onePipeReference, String status, String response);
+    // Sends payments queued while OnePipe was unavailable, or left PROCESSING by a node that went down,
+    // again and returns how many were picked up
+    int retryQueuedPayments();
 }
\ No newline at end of file
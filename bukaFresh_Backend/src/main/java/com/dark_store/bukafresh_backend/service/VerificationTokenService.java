@@ -0,0 +1,12 @@
+package com.dark_store.bukafresh_backend.service;
+
+public interface VerificationTokenService {
+
+    // Random URL-safe token to send to the user
+    String generateToken();
+
+    // Value to store instead of the plain token
+    String hash(String token);
+
+    boolean matches(String token, String storedHash);
+}
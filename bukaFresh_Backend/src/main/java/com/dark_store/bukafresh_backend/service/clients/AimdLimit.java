@@ -0,0 +1,135 @@
+package com.dark_store.bukafresh_backend.service.clients;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Concurrency limit that grows by one per round of fast successes and shrinks by a ratio on congestion
+// (additive increase, multiplicative decrease). "Fast" is judged against a smoothed latency, Vegas style,
+// so the limit settles just below the point where OnePipe starts queueing requests.
+class AimdLimit {
+
+    private static final double SMOOTHING = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private final Deque<MonoSink<Permit>> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double smoothedRttNanos;
+
+    AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    // Emits a permit once a slot is free, without holding a thread while it waits (callers that block on it still do).
+    // Exactly one of the permit's methods must be called when the request ends.
+    Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+                    boolean granted;
+                    synchronized (this) {
+                        granted = inFlight < (int) limit;
+                        if (granted) {
+                            inFlight++;
+                        } else {
+                            waiters.add(sink);
+                        }
+                    }
+                    if (granted) {
+                        sink.success(new Permit());
+                    } else {
+                        sink.onCancel(() -> {
+                            synchronized (this) {
+                                waiters.remove(sink);
+                            }
+                        });
+                    }
+                })
+                // A permit granted just as its caller cancelled is handed back
+                .doOnDiscard(Permit.class, Permit::ignored);
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void succeeded(long rttNanos) {
+        synchronized (this) {
+            if (smoothedRttNanos == 0) {
+                smoothedRttNanos = rttNanos;
+            }
+            if (rttNanos > smoothedRttNanos * latencyTolerance) {
+                decrease();
+            } else {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            smoothedRttNanos += SMOOTHING * (rttNanos - smoothedRttNanos);
+        }
+        release();
+    }
+
+    private void dropped() {
+        synchronized (this) {
+            decrease();
+        }
+        release();
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    private void release() {
+        List<MonoSink<Permit>> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                inFlight++;
+                granted.add(waiters.poll());
+            }
+        }
+        // Signalled outside the lock, the waiter goes on to send its request
+        granted.forEach(sink -> sink.success(new Permit()));
+    }
+
+    class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void succeeded(long rttNanos) {
+            if (released.compareAndSet(false, true)) {
+                AimdLimit.this.succeeded(rttNanos);
+            }
+        }
+
+        // Timeout, 429 or 5xx: OnePipe is overloaded
+        void dropped() {
+            if (released.compareAndSet(false, true)) {
+                AimdLimit.this.dropped();
+            }
+        }
+
+        // The call ended without telling anything about OnePipe's load
+        void ignored() {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.dark_store.bukafresh_backend.service.clients;
+
+import com.dark_store.bukafresh_backend.config.OnePipeProperties;
+import com.dark_store.bukafresh_backend.dto.onePipe.request.CollectRequest;
+import com.dark_store.bukafresh_backend.dto.onePipe.response.OnePipeResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sends mandate debits to OnePipe as fast as it will take them: concurrency adapts to OnePipe's latency
+// and errors, a token bucket enforces the agreed requests-per-second ceiling, and transient failures are
+// retried with jittered exponential backoff so a throttled burst does not come straight back.
+@Slf4j
+@Component
+public class OnePipeCollectEngine {
+
+    private final OnePipeMandateClient client;
+    private final OnePipeProperties.Collect props;
+    private final AimdLimit limit;
+    private final TokenBucket rateLimit;
+
+    public OnePipeCollectEngine(OnePipeMandateClient client, OnePipeProperties properties, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.props = properties.getCollect();
+        this.limit = new AimdLimit(props.getInitialLimit(), props.getMinLimit(), props.getMaxLimit(),
+                props.getBackoffRatio(), props.getLatencyTolerance());
+        this.rateLimit = new TokenBucket(props.getRequestsPerSecond(), props.getBurst());
+
+        Gauge.builder("bukafresh.onepipe.collect.limit", limit, AimdLimit::getLimit).register(meterRegistry);
+        Gauge.builder("bukafresh.onepipe.collect.inflight", limit, AimdLimit::getInFlight).register(meterRegistry);
+    }
+
+    public Mono<OnePipeResponse> collectRecurring(String transactionRef, int attempt, String mandateId,
+                                                  String customerRef, BigDecimal amount) {
+        return collect(client.buildCollectRequest(transactionRef, attempt, mandateId, customerRef, amount));
+    }
+
+    public Mono<OnePipeResponse> collect(CollectRequest request) {
+        AtomicInteger retries = new AtomicInteger();
+
+        return Mono.defer(() -> {
+                    int retry = retries.getAndIncrement();
+                    // OnePipe rejects a reused request ref, the transaction ref is what ties retries together
+                    CollectRequest attempt = retry == 0
+                            ? request
+                            : request.toBuilder().request_ref(request.getRequest_ref() + "_R" + retry).build();
+                    return send(attempt);
+                })
+                .retryWhen(Retry.backoff(props.getMaxRetries(), props.getMinBackoff())
+                        .maxBackoff(props.getMaxBackoff())
+                        .jitter(props.getJitter())
+                        .filter(this::isTransient)
+                        .doBeforeRetry(signal -> log.warn("Retrying OnePipe collect {} after: {}",
+                                request.getTransaction().getTransaction_ref(), signal.failure().getMessage()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private Mono<OnePipeResponse> send(CollectRequest request) {
+        return limit.acquire().flatMap(permit -> {
+            Duration wait = rateLimit.reserve();
+            Mono<Long> paced = wait.isZero() ? Mono.just(0L) : Mono.delay(wait);
+
+            return paced.flatMap(tick -> {
+                long startedAt = System.nanoTime();
+                return client.collect(request)
+                        .doOnSuccess(response -> permit.succeeded(System.nanoTime() - startedAt))
+                        .doOnError(e -> {
+                            if (isCongestion(e)) {
+                                permit.dropped();
+                            } else {
+                                permit.ignored();
+                            }
+                        });
+            }).doFinally(signal -> permit.ignored());
+        });
+    }
+
+    // Worth another attempt: OnePipe or the network was briefly unavailable
+    private boolean isTransient(Throwable e) {
+        return isCongestion(e) || e instanceof WebClientRequestException;
+    }
+
+    // Signals that OnePipe is overloaded and the limit should come down
+    private boolean isCongestion(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().value() == 429 || response.getStatusCode().is5xxServerError();
+        }
+        if (e instanceof TimeoutException) {
+            return true;
+        }
+        return e instanceof WebClientRequestException && e.getCause() instanceof io.netty.handler.timeout.TimeoutException;
+    }
+}
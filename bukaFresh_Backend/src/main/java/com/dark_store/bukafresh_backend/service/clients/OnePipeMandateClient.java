@@ -1,19 +1,32 @@
 package com.dark_store.bukafresh_backend.service.clients;
 
 import com.dark_store.bukafresh_backend.config.OnePipeProperties;
+import com.dark_store.bukafresh_backend.config.OnePipeResilienceConfig;
+import com.dark_store.bukafresh_backend.dto.onePipe.request.CollectRequest;
 import com.dark_store.bukafresh_backend.dto.onePipe.request.CreateMandateRequest;
 import com.dark_store.bukafresh_backend.dto.request.CreatePaymentMandateRequest;
 import com.dark_store.bukafresh_backend.dto.onePipe.response.OnePipeResponse;
 import com.dark_store.bukafresh_backend.util.MD5Hash;
 import com.dark_store.bukafresh_backend.util.TripleDES;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 @Component
@@ -21,8 +34,12 @@ import java.util.UUID;
 @Slf4j
 public class OnePipeMandateClient {
 
+    private static final Duration SIMULATED_LATENCY = Duration.ofSeconds(2);
+
     private final WebClient webClient;
     private final OnePipeProperties props;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
     private String mockMode;
 
     public Mono<OnePipeResponse> createMandate(CreatePaymentMandateRequest request
@@ -63,19 +80,74 @@ public class OnePipeMandateClient {
                 recurringAmountKobo
         );
 
-        return sendRequest(requestRef, payload);
+        return sendRequest(OnePipeResilienceConfig.MANDATE, requestRef, payload, props.getHttp().getResponseTimeout());
     }
 
 
-    private Mono<OnePipeResponse> sendRequest(String requestRef, CreateMandateRequest payload) {
-        return webClient
+    public Mono<OnePipeResponse> collect(CollectRequest request) {
+        return sendRequest(OnePipeResilienceConfig.COLLECT, request.getRequest_ref(), request, props.getHttp().getCollectResponseTimeout());
+    }
+
+    // Debit of an existing mandate. The transaction ref stays the same across retries so OnePipe can
+    // recognise a repeated charge, only the request ref changes per attempt.
+    public CollectRequest buildCollectRequest(String transactionRef, int attempt, String mandateId,
+                                              String customerRef, BigDecimal amount) {
+        validateAmount(amount);
+
+        Map<String, Object> meta = new HashMap<>();
+        meta.put("mandate_id", mandateId);
+        meta.put("biller_code", props.getBillerCode());
+
+        return CollectRequest.builder()
+                .request_ref("REQ_" + transactionRef + "_" + attempt)
+                .request_type("collect")
+                .auth(CollectRequest.Auth.builder()
+                        .type("mandate")
+                        .auth_provider("PaywithAccount")
+                        .build())
+                .transaction(CollectRequest.Transaction.builder()
+                        .transaction_ref(transactionRef)
+                        .amount(amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact())
+                        .customer(CollectRequest.Customer.builder()
+                                .customer_ref(customerRef)
+                                .build())
+                        .meta(meta)
+                        .build())
+                .build();
+    }
+
+    private Mono<OnePipeResponse> sendRequest(String operation, String requestRef, Object payload, Duration responseTimeout) {
+        return guarded(operation, webClient
                 .post()
                 .uri(props.getBaseUrl() + "/v2/transact")
+                .httpRequest(request -> {
+                    HttpClientRequest nettyRequest = request.getNativeRequest();
+                    nettyRequest.responseTimeout(responseTimeout);
+                })
                 .header("Authorization", "Bearer " + props.getBearerToken())
                 .header("Signature", MD5Hash.generate(requestRef, props.getClientSecret()))
                 .bodyValue(payload)
                 .retrieve()
-                .bodyToMono(OnePipeResponse.class);
+                .bodyToMono(OnePipeResponse.class));
+    }
+
+    // Rejects the call at once with CallNotPermittedException while the operation's circuit is open,
+    // or BulkheadFullException when too many of its calls are already in flight
+    private <T> Mono<T> guarded(String operation, Mono<T> call) {
+        return call
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(operation)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(operation)));
+    }
+
+    // False while the direct debit circuit is open, half-open lets probe calls through
+    public boolean acceptsDirectDebits() {
+        CircuitBreaker.State state = circuitBreakerRegistry.circuitBreaker(OnePipeResilienceConfig.DIRECT_DEBIT).getState();
+        return state != CircuitBreaker.State.OPEN && state != CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    // True when the call failed fast because OnePipe is isolated, not because OnePipe answered
+    public static boolean isRejected(Throwable e) {
+        return e instanceof CallNotPermittedException || e instanceof BulkheadFullException;
     }
 
     private CreateMandateRequest buildRequest(
@@ -184,7 +256,7 @@ public class OnePipeMandateClient {
         }
     }
 
-    public String processDirectDebit(
+    public Mono<String> processDirectDebit(
             String paymentReference,
             String bvn,
             String accountNumber,
@@ -195,34 +267,29 @@ public class OnePipeMandateClient {
             BigDecimal amount
     ) {
         // For now, simulate OnePipe direct debit call
-        // In production, this would make actual API call to OnePipe
-        
+        // In production, this would go through collect() like createMandate does
+
         log.info("Processing direct debit for payment reference: {}", paymentReference);
         log.info("Amount: {}, Account: {}, Bank: {}", amount, maskAccountNumber(accountNumber), bankName);
-        
-        try {
-            // Simulate API call delay
-            Thread.sleep(2000);
-            
-            // Simulate success response (90% success rate for demo)
-            if (Math.random() > 0.1) {
-                String mockResponse = String.format(
-                    "{\"status\":\"SUCCESS\",\"reference\":\"%s\",\"amount\":\"%s\",\"message\":\"Payment successful\"}",
-                    paymentReference, amount
-                );
-                log.info("Direct debit successful for reference: {}", paymentReference);
-                return mockResponse;
-            } else {
-                throw new RuntimeException("Insufficient funds");
-            }
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Payment processing interrupted");
-        } catch (Exception e) {
-            log.error("Direct debit failed for reference {}: {}", paymentReference, e.getMessage());
-            throw new RuntimeException("Payment failed: " + e.getMessage());
-        }
+
+        // Simulate API call delay on a timer instead of parking the caller's thread
+        return guarded(OnePipeResilienceConfig.DIRECT_DEBIT, Mono.delay(SIMULATED_LATENCY)
+                .map(tick -> {
+                    // Simulate success response (90% success rate for demo)
+                    if (Math.random() > 0.1) {
+                        String mockResponse = String.format(
+                            "{\"status\":\"SUCCESS\",\"reference\":\"%s\",\"amount\":\"%s\",\"message\":\"Payment successful\"}",
+                            paymentReference, amount
+                        );
+                        log.info("Direct debit successful for reference: {}", paymentReference);
+                        return mockResponse;
+                    }
+                    throw new RuntimeException("Insufficient funds");
+                })
+                .onErrorMap(e -> !isRejected(e), e -> {
+                    log.error("Direct debit failed for reference {}: {}", paymentReference, e.getMessage());
+                    return new RuntimeException("Payment failed: " + e.getMessage());
+                }));
     }
 
     private String maskAccountNumber(String accountNumber) {
@@ -0,0 +1,40 @@
+package com.dark_store.bukafresh_backend.service.clients;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+// Requests-per-second ceiling. Callers reserve a token and are told how long to wait for it,
+// so waiting callers are spaced out evenly instead of retrying in a burst.
+class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private final LongSupplier nanoTime;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double tokensPerSecond, int burst) {
+        this(tokensPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double tokensPerSecond, int burst, LongSupplier nanoTime) {
+        this.tokensPerNano = tokensPerSecond / Duration.ofSeconds(1).toNanos();
+        this.capacity = Math.max(1, burst);
+        this.nanoTime = nanoTime;
+        this.tokens = capacity;
+        this.lastRefill = nanoTime.getAsLong();
+    }
+
+    // Zero if a token is available now, otherwise the delay until the reserved one is
+    synchronized Duration reserve() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+
+        tokens -= 1;
+        if (tokens >= 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((long) (-tokens / tokensPerNano));
+    }
+}
@@ -2,12 +2,14 @@ package com.dark_store.bukafresh_backend.service.emailService;
 
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class EmailSender implements IEmailService {
@@ -30,10 +32,10 @@ public class EmailSender implements IEmailService {
             helper.setText(emailDetails.getMessageBody(), emailDetails.isHtml());
 
             mailSender.send(message);
-            System.out.println("Email sent successfully to " + emailDetails.getRecipient());
+            log.info("Email sent successfully to {}", emailDetails.getRecipient());
 
         } catch (Exception ex) {
-            System.err.println("Email sending failed: " + ex.getMessage());
+            log.error("Email sending failed: {}", ex.getMessage(), ex);
         }
     }
 }
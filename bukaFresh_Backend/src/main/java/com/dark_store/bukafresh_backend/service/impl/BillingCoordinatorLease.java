@@ -0,0 +1,42 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.repository.LeaseRepository;
+import lombok.Getter;
+
+import java.time.Duration;
+
+// The coordinator lease held by this node for the length of one billing run
+class BillingCoordinatorLease {
+
+    static final String NAME = "billing-coordinator";
+
+    private final LeaseRepository leaseRepository;
+    private final String owner;
+    @Getter
+    private final long fencingToken;
+    private final Duration ttl;
+    private long renewedAt;
+
+    BillingCoordinatorLease(LeaseRepository leaseRepository, String owner, long fencingToken, Duration ttl) {
+        this.leaseRepository = leaseRepository;
+        this.owner = owner;
+        this.fencingToken = fencingToken;
+        this.ttl = ttl;
+        this.renewedAt = System.currentTimeMillis();
+    }
+
+    // Renews once half the TTL has gone, throws if another node has taken over in the meantime
+    void heartbeat() {
+        if (System.currentTimeMillis() - renewedAt < ttl.toMillis() / 2) {
+            return;
+        }
+        if (!leaseRepository.renew(NAME, owner, fencingToken, ttl)) {
+            throw new IllegalStateException("Lost billing coordinator lease " + fencingToken);
+        }
+        renewedAt = System.currentTimeMillis();
+    }
+
+    void release() {
+        leaseRepository.release(NAME, owner, fencingToken);
+    }
+}
@@ -0,0 +1,59 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.dto.billing.BillingDateUpdate;
+import com.dark_store.bukafresh_backend.dto.billing.BillingWriteFailure;
+import com.dark_store.bukafresh_backend.repository.SubscriptionRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Buffers billing date changes for one partition worker, not thread-safe
+class BillingDateWriter {
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final int batchSize;
+    private final long flushIntervalMs;
+
+    private final List<BillingDateUpdate> buffer;
+    private final List<BillingWriteFailure> failures = new ArrayList<>();
+    private long oldestBufferedAt;
+    private int written;
+
+    BillingDateWriter(SubscriptionRepository subscriptionRepository, int batchSize, Duration flushInterval) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = flushInterval.toMillis();
+        this.buffer = new ArrayList<>(this.batchSize);
+    }
+
+    void add(BillingDateUpdate update) {
+        if (buffer.isEmpty()) {
+            oldestBufferedAt = System.currentTimeMillis();
+        }
+        buffer.add(update);
+
+        if (buffer.size() >= batchSize || System.currentTimeMillis() - oldestBufferedAt >= flushIntervalMs) {
+            flush();
+        }
+    }
+
+    void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        List<BillingWriteFailure> batchFailures = subscriptionRepository.advanceBillingDates(buffer);
+        failures.addAll(batchFailures);
+        written += buffer.size() - batchFailures.size();
+        buffer.clear();
+    }
+
+    int getWritten() {
+        return written;
+    }
+
+    List<BillingWriteFailure> getFailures() {
+        return failures;
+    }
+}
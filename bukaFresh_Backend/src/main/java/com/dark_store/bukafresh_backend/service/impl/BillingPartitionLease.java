@@ -0,0 +1,37 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.model.BillingPartition;
+import com.dark_store.bukafresh_backend.repository.BillingPartitionRepository;
+
+import java.time.Duration;
+
+// The lease this node holds on one billing partition while it bills it
+class BillingPartitionLease {
+
+    private final BillingPartitionRepository billingPartitionRepository;
+    private final BillingPartition partition;
+    private final String owner;
+    private final Duration ttl;
+    private long renewedAt;
+
+    BillingPartitionLease(BillingPartitionRepository billingPartitionRepository, BillingPartition partition,
+                          String owner, Duration ttl) {
+        this.billingPartitionRepository = billingPartitionRepository;
+        this.partition = partition;
+        this.owner = owner;
+        this.ttl = ttl;
+        this.renewedAt = System.currentTimeMillis();
+    }
+
+    // Renews once half the TTL has gone, throws if the partition was taken over in the meantime
+    void heartbeat() {
+        if (System.currentTimeMillis() - renewedAt < ttl.toMillis() / 2) {
+            return;
+        }
+        if (!billingPartitionRepository.renew(partition.getId(), owner, partition.getAttempts(), ttl)) {
+            throw new IllegalStateException("Lost lease on billing partition " + partition.getIndex()
+                    + " of run " + partition.getRunId());
+        }
+        renewedAt = System.currentTimeMillis();
+    }
+}
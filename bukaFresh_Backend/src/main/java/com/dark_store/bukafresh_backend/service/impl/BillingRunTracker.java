@@ -0,0 +1,203 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.dto.billing.BillingWriteFailure;
+import com.dark_store.bukafresh_backend.model.BillingPartition;
+import com.dark_store.bukafresh_backend.model.BillingRun;
+import com.dark_store.bukafresh_backend.model.Subscription;
+import com.dark_store.bukafresh_backend.repository.BillingPartitionRepository;
+import com.dark_store.bukafresh_backend.repository.BillingRunRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Publishes a run's partitions as work leases and folds the workers' results back into its ledger entry
+@Slf4j
+class BillingRunTracker {
+
+    // Failures kept on the run summary, the rest are only logged by the workers
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final BillingRun run;
+    private final BillingRunRepository billingRunRepository;
+    private final BillingPartitionRepository billingPartitionRepository;
+    private final BillingCoordinatorLease lease;
+    private final int maxPending;
+    private final int maxPartitionAttempts;
+    private final long pollIntervalMs;
+
+    private final TreeMap<Integer, BillingRun.Partition> outstanding = new TreeMap<>();
+    private final List<BillingRun.Partition> failedPartitions = new ArrayList<>();
+    private final List<BillingWriteFailure> failures = new ArrayList<>();
+    private int completedPartitions;
+
+    BillingRunTracker(BillingRun run,
+                      BillingRunRepository billingRunRepository,
+                      BillingPartitionRepository billingPartitionRepository,
+                      BillingCoordinatorLease lease,
+                      int maxPending,
+                      int maxPartitionAttempts,
+                      Duration pollInterval) {
+        this.run = run;
+        this.billingRunRepository = billingRunRepository;
+        this.billingPartitionRepository = billingPartitionRepository;
+        this.lease = lease;
+        this.maxPending = maxPending;
+        this.maxPartitionAttempts = maxPartitionAttempts;
+        this.pollIntervalMs = pollInterval.toMillis();
+
+        // Partitions that were running when a previous attempt died are rescanned from the checkpoint
+        run.getPartitions().stream()
+                .filter(partition -> "FAILED".equals(partition.getStatus()))
+                .forEach(failedPartitions::add);
+    }
+
+    void publish(List<Subscription> subscriptions) {
+        while (outstanding.size() >= maxPending) {
+            awaitProgress();
+        }
+        lease.heartbeat();
+
+        LocalDateTime now = LocalDateTime.now();
+        BillingRun.Partition entry = BillingRun.Partition.builder()
+                .index(run.getNextPartitionIndex())
+                .firstSubscriptionId(subscriptions.get(0).getId())
+                .lastSubscriptionId(subscriptions.get(subscriptions.size() - 1).getId())
+                .status("RUNNING")
+                .build();
+
+        billingPartitionRepository.save(BillingPartition.builder()
+                .runId(run.getId())
+                .index(entry.getIndex())
+                .billingDate(run.getBillingDate())
+                .subscriptionIds(subscriptions.stream().map(Subscription::getId).toList())
+                .status("PENDING")
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+
+        run.setNextPartitionIndex(entry.getIndex() + 1);
+        outstanding.put(entry.getIndex(), entry);
+    }
+
+    // Blocks until every published partition has completed or failed
+    void awaitIdle() {
+        while (!outstanding.isEmpty()) {
+            awaitProgress();
+        }
+    }
+
+    List<BillingWriteFailure> getFailures() {
+        return List.copyOf(failures);
+    }
+
+    private void awaitProgress() {
+        if (refresh()) {
+            return;
+        }
+        try {
+            Thread.sleep(pollIntervalMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for billing partitions", e);
+        }
+    }
+
+    private boolean refresh() {
+        lease.heartbeat();
+
+        boolean changed = false;
+        LocalDateTime now = LocalDateTime.now();
+        for (BillingPartition partition : billingPartitionRepository.findByRunIdAndIndexIn(run.getId(), outstanding.keySet())) {
+            BillingRun.Partition entry = outstanding.get(partition.getIndex());
+            if (!"RUNNING".equals(entry.getStatus())) {
+                continue;
+            }
+
+            boolean abandoned = "LEASED".equals(partition.getStatus())
+                    && partition.getAttempts() >= maxPartitionAttempts
+                    && partition.getLeaseExpiresAt().isBefore(now);
+
+            if ("COMPLETED".equals(partition.getStatus())) {
+                complete(entry, partition);
+                changed = true;
+            } else if ("FAILED".equals(partition.getStatus()) || abandoned) {
+                fail(entry, partition);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            advanceCheckpoint();
+            persist();
+        }
+        return changed;
+    }
+
+    private void complete(BillingRun.Partition entry, BillingPartition partition) {
+        entry.setStatus("COMPLETED");
+        entry.setProcessed(partition.getProcessed());
+        entry.setFailed(partition.getFailed());
+        record(partition);
+
+        log.info("Billing partition {} done by {}: {} processed, {} failed ({} partitions, {} subscriptions so far)",
+                entry.getIndex(), partition.getOwner(), partition.getProcessed(), partition.getFailed(),
+                completedPartitions, run.getProcessed());
+    }
+
+    private void fail(BillingRun.Partition entry, BillingPartition partition) {
+        // Its subscriptions are still due, so the next run picks them up as past-due
+        entry.setStatus("FAILED");
+        entry.setProcessed(partition.getProcessed());
+        entry.setFailed(partition.getSubscriptionIds().size() - partition.getProcessed());
+        failedPartitions.add(entry);
+        record(partition);
+
+        log.error("Billing partition {} failed after {} attempts", entry.getIndex(), partition.getAttempts());
+    }
+
+    private void record(BillingPartition partition) {
+        BillingRun.Partition entry = outstanding.get(partition.getIndex());
+        completedPartitions++;
+        run.setProcessed(run.getProcessed() + entry.getProcessed());
+        run.setFailed(run.getFailed() + entry.getFailed());
+
+        if (partition.getFailures() != null) {
+            for (BillingWriteFailure failure : partition.getFailures()) {
+                if (failures.size() >= MAX_REPORTED_FAILURES) {
+                    break;
+                }
+                failures.add(failure);
+            }
+        }
+    }
+
+    private void persist() {
+        List<BillingRun.Partition> ledger = new ArrayList<>(failedPartitions);
+        outstanding.values().stream()
+                .filter(partition -> !"FAILED".equals(partition.getStatus()))
+                .forEach(ledger::add);
+        run.setPartitions(ledger);
+        run.setUpdatedAt(LocalDateTime.now());
+
+        if (!billingRunRepository.saveFenced(run)) {
+            throw new IllegalStateException("Billing run " + run.getId() + " was taken over by another coordinator");
+        }
+    }
+
+    // Only the lowest contiguous finished partitions can move the checkpoint, later ones wait their turn
+    private void advanceCheckpoint() {
+        while (!outstanding.isEmpty()) {
+            Map.Entry<Integer, BillingRun.Partition> lowest = outstanding.firstEntry();
+            if ("RUNNING".equals(lowest.getValue().getStatus())) {
+                return;
+            }
+            run.setCheckpointSubscriptionId(lowest.getValue().getLastSubscriptionId());
+            outstanding.pollFirstEntry();
+        }
+    }
+}
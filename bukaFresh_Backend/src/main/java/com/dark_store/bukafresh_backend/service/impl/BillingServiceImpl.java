@@ -0,0 +1,317 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.config.BillingProperties;
+import com.dark_store.bukafresh_backend.dto.billing.BillingDateUpdate;
+import com.dark_store.bukafresh_backend.dto.billing.BillingPartitionResult;
+import com.dark_store.bukafresh_backend.dto.billing.BillingRunSummary;
+import com.dark_store.bukafresh_backend.dto.billing.BillingWriteFailure;
+import com.dark_store.bukafresh_backend.model.BillingPartition;
+import com.dark_store.bukafresh_backend.model.BillingRun;
+import com.dark_store.bukafresh_backend.model.Subscription;
+import com.dark_store.bukafresh_backend.repository.BillingPartitionRepository;
+import com.dark_store.bukafresh_backend.repository.BillingRunRepository;
+import com.dark_store.bukafresh_backend.repository.LeaseRepository;
+import com.dark_store.bukafresh_backend.repository.SubscriptionRepository;
+import com.dark_store.bukafresh_backend.service.BillingService;
+import com.dark_store.bukafresh_backend.util.BillingPeriod;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class BillingServiceImpl implements BillingService {
+
+    // Failures stored on a partition, the rest are only logged
+    private static final int MAX_PARTITION_FAILURES = 100;
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final BillingRunRepository billingRunRepository;
+    private final BillingPartitionRepository billingPartitionRepository;
+    private final LeaseRepository leaseRepository;
+    private final BillingProperties billingProperties;
+    private final OrderPipeline orderPipeline;
+    private final ExecutorService billingExecutor;
+    private final Semaphore workerSlots;
+    private final String nodeId;
+
+    public BillingServiceImpl(SubscriptionRepository subscriptionRepository,
+                              BillingRunRepository billingRunRepository,
+                              BillingPartitionRepository billingPartitionRepository,
+                              LeaseRepository leaseRepository,
+                              BillingProperties billingProperties,
+                              OrderPipeline orderPipeline) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.billingRunRepository = billingRunRepository;
+        this.billingPartitionRepository = billingPartitionRepository;
+        this.leaseRepository = leaseRepository;
+        this.billingProperties = billingProperties;
+        this.orderPipeline = orderPipeline;
+
+        int concurrency = Math.max(1, billingProperties.getConcurrency());
+        // Kept private so it does not replace the application task executor used by @Async
+        this.billingExecutor = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("billing-"));
+        this.workerSlots = new Semaphore(concurrency);
+        this.nodeId = billingProperties.getNodeId() != null ? billingProperties.getNodeId() : defaultNodeId();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        billingExecutor.shutdown();
+    }
+
+    @Override
+    public Optional<BillingRunSummary> runBilling(LocalDate billingDate) {
+        return withCoordinatorLease(lease -> {
+            BillingRun run = billingRunRepository.findFirstByBillingDateAndStatus(billingDate, "RUNNING")
+                    .orElseGet(() -> billingRunRepository.save(BillingRun.builder()
+                            .billingDate(billingDate)
+                            .status("RUNNING")
+                            .startedAt(LocalDateTime.now())
+                            .updatedAt(LocalDateTime.now())
+                            .build()));
+
+            return execute(run, lease);
+        });
+    }
+
+    @Override
+    public List<BillingRunSummary> resumeInterruptedRuns() {
+        return withCoordinatorLease(lease -> {
+            List<BillingRunSummary> summaries = new ArrayList<>();
+
+            for (BillingRun run : billingRunRepository.findByStatus("RUNNING")) {
+                if (run.getBillingDate().isBefore(LocalDate.now())) {
+                    // Whatever it left behind is past-due now and belongs to today's run
+                    run.setStatus("ABANDONED");
+                    run.setUpdatedAt(LocalDateTime.now());
+                    billingRunRepository.save(run);
+                    billingPartitionRepository.cancelPending(run.getId());
+                    log.warn("Abandoned interrupted billing run {} for {}", run.getId(), run.getBillingDate());
+                    continue;
+                }
+                summaries.add(execute(run, lease));
+            }
+            return summaries;
+        }).orElse(List.of());
+    }
+
+    @Override
+    public int claimPartitions() {
+        int claimed = 0;
+
+        while (workerSlots.tryAcquire()) {
+            Optional<BillingPartition> next = billingPartitionRepository.claimNext(
+                    nodeId, billingProperties.getPartitionLeaseTtl(), billingProperties.getMaxPartitionAttempts());
+            if (next.isEmpty()) {
+                workerSlots.release();
+                break;
+            }
+
+            BillingPartition partition = next.get();
+            claimed++;
+
+            CompletableFuture
+                    .supplyAsync(() -> processPartition(partition), billingExecutor)
+                    .whenComplete((result, error) -> {
+                        try {
+                            finishPartition(partition, result, error);
+                        } catch (Exception e) {
+                            log.error("Failed to record billing partition {}: {}", partition.getId(), e.getMessage(), e);
+                        } finally {
+                            workerSlots.release();
+                        }
+                    });
+        }
+        return claimed;
+    }
+
+    private <T> Optional<T> withCoordinatorLease(Function<BillingCoordinatorLease, T> work) {
+        Optional<Long> token = leaseRepository.tryAcquire(
+                BillingCoordinatorLease.NAME, nodeId, billingProperties.getLeaseTtl());
+        if (token.isEmpty()) {
+            log.info("Billing is being coordinated by another node, {} will only work on partitions", nodeId);
+            return Optional.empty();
+        }
+
+        BillingCoordinatorLease lease = new BillingCoordinatorLease(
+                leaseRepository, nodeId, token.get(), billingProperties.getLeaseTtl());
+        try {
+            return Optional.of(work.apply(lease));
+        } finally {
+            lease.release();
+        }
+    }
+
+    private BillingRunSummary execute(BillingRun run, BillingCoordinatorLease lease) {
+        long startedAt = System.currentTimeMillis();
+
+        if (!billingRunRepository.claim(run.getId(), lease.getFencingToken())) {
+            throw new IllegalStateException("Billing run " + run.getId() + " is owned by a newer coordinator");
+        }
+        run.setFencingToken(lease.getFencingToken());
+
+        String checkpoint = run.getCheckpointSubscriptionId();
+        if (checkpoint != null) {
+            log.info("Resuming billing run {} for {} after subscription {}", run.getId(), run.getBillingDate(), checkpoint);
+        }
+
+        // Pending partitions of an interrupted attempt are republished from the checkpoint below
+        billingPartitionRepository.cancelPending(run.getId());
+        billingPartitionRepository.findFirstByRunIdOrderByIndexDesc(run.getId())
+                .ifPresent(last -> run.setNextPartitionIndex(Math.max(run.getNextPartitionIndex(), last.getIndex() + 1)));
+
+        int maxPending = Math.max(billingProperties.getConcurrency(), billingProperties.getMaxPendingPartitions());
+        BillingRunTracker tracker = new BillingRunTracker(
+                run,
+                billingRunRepository,
+                billingPartitionRepository,
+                lease,
+                maxPending,
+                billingProperties.getMaxPartitionAttempts(),
+                billingProperties.getPollInterval()
+        );
+
+        // Past-due dates are included so a missed run is picked up by the next one
+        try (Stream<Subscription> due = checkpoint == null
+                ? subscriptionRepository.findByStatusAndNextBillingDateLessThanEqualOrderByIdAsc(
+                        "ACTIVE", run.getBillingDate())
+                : subscriptionRepository.findByStatusAndNextBillingDateLessThanEqualAndIdGreaterThanOrderByIdAsc(
+                        "ACTIVE", run.getBillingDate(), checkpoint)) {
+
+            List<Subscription> partition = new ArrayList<>(billingProperties.getPartitionSize());
+            Iterator<Subscription> cursor = due.iterator();
+            while (cursor.hasNext()) {
+                partition.add(cursor.next());
+                if (partition.size() >= billingProperties.getPartitionSize()) {
+                    tracker.publish(partition);
+                    partition = new ArrayList<>(billingProperties.getPartitionSize());
+                }
+            }
+
+            if (!partition.isEmpty()) {
+                tracker.publish(partition);
+            }
+        }
+        tracker.awaitIdle();
+
+        run.setStatus("COMPLETED");
+        run.setCompletedAt(LocalDateTime.now());
+        run.setUpdatedAt(LocalDateTime.now());
+        if (!billingRunRepository.saveFenced(run)) {
+            throw new IllegalStateException("Billing run " + run.getId() + " was taken over by another coordinator");
+        }
+
+        BillingRunSummary summary = BillingRunSummary.builder()
+                .runId(run.getId())
+                .billingDate(run.getBillingDate())
+                .partitions(run.getNextPartitionIndex())
+                .processed(run.getProcessed())
+                .failed(run.getFailed())
+                .failures(tracker.getFailures())
+                .durationMs(System.currentTimeMillis() - startedAt)
+                .build();
+
+        log.info("Billing run {} for {} finished: {} partitions, {} processed, {} failed in {} ms",
+                run.getId(), summary.getBillingDate(), summary.getPartitions(),
+                summary.getProcessed(), summary.getFailed(), summary.getDurationMs());
+
+        return summary;
+    }
+
+    private void finishPartition(BillingPartition partition, BillingPartitionResult result, Throwable error) {
+        boolean recorded;
+        if (error != null) {
+            log.error("Billing partition {} of run {} aborted: {}",
+                    partition.getIndex(), partition.getRunId(), error.getMessage(), error);
+            recorded = billingPartitionRepository.finish(
+                    partition.getId(), nodeId, partition.getAttempts(), "FAILED", 0, partition.getSubscriptionIds().size(), List.of());
+        } else {
+            List<BillingWriteFailure> failures = result.getFailures();
+            recorded = billingPartitionRepository.finish(
+                    partition.getId(), nodeId, partition.getAttempts(), "COMPLETED", result.getProcessed(), result.getFailed(),
+                    failures.subList(0, Math.min(failures.size(), MAX_PARTITION_FAILURES)));
+        }
+
+        if (!recorded) {
+            log.warn("Lease on billing partition {} of run {} was lost before it finished",
+                    partition.getIndex(), partition.getRunId());
+        }
+    }
+
+    private BillingPartitionResult processPartition(BillingPartition partition) {
+        long startedAt = System.currentTimeMillis();
+        LocalDate billingDate = partition.getBillingDate();
+        List<BillingWriteFailure> failures = new ArrayList<>();
+        BillingDateWriter writer = new BillingDateWriter(
+                subscriptionRepository,
+                billingProperties.getWriteBatchSize(),
+                billingProperties.getWriteFlushInterval()
+        );
+        // Kept alive while the partition is worked on, so a slow partition is not handed to a second worker
+        BillingPartitionLease lease = new BillingPartitionLease(
+                billingPartitionRepository, partition, nodeId, billingProperties.getPartitionLeaseTtl());
+
+        for (Subscription sub : subscriptionRepository.findAllById(partition.getSubscriptionIds())) {
+            lease.heartbeat();
+            // A retried partition may contain subscriptions an earlier attempt already billed
+            if (!"ACTIVE".equals(sub.getStatus()) || sub.getNextBillingDate().isAfter(billingDate)) {
+                continue;
+            }
+            try {
+                writer.add(billSubscription(sub, billingDate));
+            } catch (Exception e) {
+                failures.add(new BillingWriteFailure(sub.getId(), e.getMessage()));
+            }
+        }
+        lease.heartbeat();
+        writer.flush();
+        failures.addAll(writer.getFailures());
+
+        for (BillingWriteFailure failure : failures) {
+            log.error("Failed to process subscription {}: {}", failure.getSubscriptionId(), failure.getReason());
+        }
+
+        return BillingPartitionResult.builder()
+                .partitionIndex(partition.getIndex())
+                .processed(writer.getWritten())
+                .failed(failures.size())
+                .failures(failures)
+                .durationMs(System.currentTimeMillis() - startedAt)
+                .build();
+    }
+
+    private BillingDateUpdate billSubscription(Subscription sub, LocalDate billingDate) {
+        // Collection, order creation and delivery scheduling continue in the order pipeline
+        orderPipeline.open(sub);
+        log.debug("Processing subscription for user: {}", sub.getUserId());
+
+        return new BillingDateUpdate(sub.getId(), BillingPeriod.next(sub.getBillingCycle(), billingDate), LocalDateTime.now());
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,263 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.config.IdempotencyProperties;
+import com.dark_store.bukafresh_backend.exception.BusinessException;
+import com.dark_store.bukafresh_backend.exception.ConflictingStateException;
+import com.dark_store.bukafresh_backend.exception.IdempotencyKeyMismatchException;
+import com.dark_store.bukafresh_backend.exception.InvalidIdempotencyKeyException;
+import com.dark_store.bukafresh_backend.exception.ResourceNotFoundException;
+import com.dark_store.bukafresh_backend.exception.ServiceUnavailableException;
+import com.dark_store.bukafresh_backend.model.IdempotencyRecord;
+import com.dark_store.bukafresh_backend.repository.IdempotencyRecordRepository;
+import com.dark_store.bukafresh_backend.service.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyProperties properties;
+
+    // Completed responses never change until they expire, so repeats are answered without Mongo
+    private final Cache<String, IdempotencyRecord> completed;
+    // Executions running on this instance, a repeat waits for the same result instead of starting its own
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyServiceImpl(IdempotencyRecordRepository idempotencyRecordRepository,
+                                  ObjectMapper objectMapper,
+                                  IdempotencyProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(properties.getNearCacheSize())
+                .expireAfterWrite(min(properties.getNearCacheTtl(), properties.getTtl()))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "idempotency");
+    }
+
+    @Override
+    public <T> Mono<T> execute(String scope, String key, Object request, Class<T> type, Mono<T> action) {
+        return execute(scope, key, request, type, action, UnaryOperator.identity());
+    }
+
+    @Override
+    public <T> Mono<T> execute(String scope, String key, Object request, Class<T> type, Mono<T> action,
+                               UnaryOperator<T> refresh) {
+        if (key == null || key.isBlank()) {
+            return action;
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new InvalidIdempotencyKeyException(
+                    "Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters"));
+        }
+
+        String id = scope + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        IdempotencyRecord cached = completed.getIfPresent(id);
+        if (cached != null) {
+            return replay(cached, fingerprint, type, refresh);
+        }
+
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        InFlight running = inFlight.putIfAbsent(id, new InFlight(fingerprint, result));
+        if (running != null) {
+            if (!running.fingerprint().equals(fingerprint)) {
+                return Mono.error(mismatch());
+            }
+            return Mono.fromFuture(running.result(), true).cast(type);
+        }
+
+        // Runs to the end even if the first caller goes away, so its retry finds the stored result
+        claimAndRun(id, fingerprint, type, action, refresh)
+                .doFinally(signal -> inFlight.remove(id))
+                .subscribe(result::complete, result::completeExceptionally, () -> result.complete(null));
+
+        return Mono.fromFuture(result, true).cast(type);
+    }
+
+    @Override
+    public <T> T executeBlocking(String scope, String key, Object request, Class<T> type, Supplier<T> action) {
+        return executeBlocking(scope, key, request, type, action, UnaryOperator.identity());
+    }
+
+    @Override
+    public <T> T executeBlocking(String scope, String key, Object request, Class<T> type, Supplier<T> action,
+                                 UnaryOperator<T> refresh) {
+        return execute(scope, key, request, type,
+                Mono.fromCallable(new DelegatingSecurityContextCallable<>(action::get)), refresh).block();
+    }
+
+    private <T> Mono<T> claimAndRun(String id, String fingerprint, Class<T> type, Mono<T> action, UnaryOperator<T> refresh) {
+        String owner = UUID.randomUUID().toString();
+        long polls = properties.getWaitTimeout().toMillis() / Math.max(1, properties.getPollInterval().toMillis());
+
+        return Mono.fromCallable(() -> claim(id, fingerprint, owner))
+                .subscribeOn(Schedulers.boundedElastic())
+                // Held by a request on another instance: wait for it to answer, fail or lose its lock
+                .retryWhen(Retry.fixedDelay(polls, properties.getPollInterval())
+                        .filter(KeyInUseException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) ->
+                                new BusinessException("A request with this Idempotency-Key is still being processed")))
+                .flatMap(record -> "COMPLETED".equals(record.getStatus())
+                        ? replay(record, fingerprint, type, refresh)
+                        : run(record, action));
+    }
+
+    private IdempotencyRecord claim(String id, String fingerprint, String owner) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            return idempotencyRecordRepository.claim(IdempotencyRecord.builder()
+                    .id(id)
+                    .fingerprint(fingerprint)
+                    .status("IN_PROGRESS")
+                    .owner(owner)
+                    .lockedUntil(now.plus(properties.getLockTimeout()))
+                    .createdAt(now)
+                    .expiresAt(now.plus(properties.getTtl()))
+                    .build(), now);
+        } catch (DuplicateKeyException e) {
+            // Released between the two calls, the next poll claims it
+            IdempotencyRecord existing = idempotencyRecordRepository.findById(id).orElseThrow(KeyInUseException::new);
+            if (!existing.getFingerprint().equals(fingerprint)) {
+                throw mismatch();
+            }
+            if ("COMPLETED".equals(existing.getStatus())) {
+                completed.put(id, existing);
+                return existing;
+            }
+            throw new KeyInUseException();
+        }
+    }
+
+    private <T> Mono<T> run(IdempotencyRecord record, Mono<T> action) {
+        return action
+                .flatMap(value -> store(record, value, null).thenReturn(value))
+                // A failure after the action may have debited is final too, only an up-front refusal runs again
+                .onErrorResume(e -> (rejectedBeforeChanges(e) ? release(record) : store(record, null, e))
+                        .then(Mono.error(e)));
+    }
+
+    private static boolean rejectedBeforeChanges(Throwable e) {
+        return e instanceof ResourceNotFoundException
+                || e instanceof ConflictingStateException
+                || e instanceof ServiceUnavailableException;
+    }
+
+    private Mono<Void> release(IdempotencyRecord record) {
+        return Mono.fromRunnable(() -> idempotencyRecordRepository.release(record.getId(), record.getOwner()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private Mono<Void> store(IdempotencyRecord record, Object value, Throwable error) {
+        return Mono.fromRunnable(() -> {
+                    String response = error == null ? toJson(value) : null;
+                    String errorType = error == null ? null : error instanceof BusinessException ? "BUSINESS" : "INTERNAL";
+                    String errorMessage = error == null ? null : error.getMessage();
+                    LocalDateTime now = LocalDateTime.now();
+                    if (idempotencyRecordRepository.complete(record.getId(), record.getOwner(), response, errorType, errorMessage, now)) {
+                        record.setStatus("COMPLETED");
+                        record.setResponse(response);
+                        record.setErrorType(errorType);
+                        record.setErrorMessage(errorMessage);
+                        record.setCompletedAt(now);
+                        completed.put(record.getId(), record);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                // The key stays held, a repeat after the lock timeout runs the action again. Actions with side effects
+                // must find their earlier work on a rerun, like payments keyed by the Idempotency-Key.
+                .onErrorResume(e -> {
+                    log.error("Failed to store response for idempotency key {}: {}", record.getId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private <T> Mono<T> replay(IdempotencyRecord record, String fingerprint, Class<T> type, UnaryOperator<T> refresh) {
+        return Mono.fromCallable(() -> refresh.apply(replay(record, fingerprint, type)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private <T> T replay(IdempotencyRecord record, String fingerprint, Class<T> type) throws JsonProcessingException {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            throw mismatch();
+        }
+        if (record.getErrorType() != null) {
+            // Answered with the same status and message as the first attempt
+            throw "BUSINESS".equals(record.getErrorType())
+                    ? new BusinessException(record.getErrorMessage())
+                    : new IllegalStateException(record.getErrorMessage());
+        }
+        return objectMapper.readValue(record.getResponse(), type);
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response", e);
+        }
+    }
+
+    private IdempotencyKeyMismatchException mismatch() {
+        return new IdempotencyKeyMismatchException("Idempotency-Key was already used with a different request");
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<Object> result) {
+    }
+
+    // Another request holds the key, only used to drive the polling retry
+    private static class KeyInUseException extends RuntimeException {
+        KeyInUseException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.config.OnePipeProperties;
+import com.dark_store.bukafresh_backend.config.OrderPipelineProperties;
+import com.dark_store.bukafresh_backend.dto.event.BillingCycleEvent;
+import com.dark_store.bukafresh_backend.dto.onePipe.response.OnePipeResponse;
+import com.dark_store.bukafresh_backend.model.BillingCycle;
+import com.dark_store.bukafresh_backend.model.Order;
+import com.dark_store.bukafresh_backend.model.Payment;
+import com.dark_store.bukafresh_backend.model.Subscription;
+import com.dark_store.bukafresh_backend.repository.BillingCycleRepository;
+import com.dark_store.bukafresh_backend.repository.PaymentRepository;
+import com.dark_store.bukafresh_backend.service.OrderService;
+import com.dark_store.bukafresh_backend.service.OutboxService;
+import com.dark_store.bukafresh_backend.service.clients.OnePipeCollectEngine;
+import com.dark_store.bukafresh_backend.service.clients.OnePipeMandateClient;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+
+// Turns due subscriptions into scheduled deliveries in three stages: collect -> order -> delivery.
+// Each stage has its own bounded queue and workers, so cycles that are already paid keep moving to
+// orders while others wait on OnePipe. Progress is stored on the BillingCycle after every stage.
+@Slf4j
+@Component
+public class OrderPipeline {
+
+    private static final List<String> RESUMABLE_STAGES = List.of("COLLECT_PENDING", "COLLECTING", "PAID", "ORDERED");
+
+    private final BillingCycleRepository billingCycleRepository;
+    private final PaymentRepository paymentRepository;
+    private final OrderService orderService;
+    private final OutboxService outboxService;
+    private final OnePipeCollectEngine collectEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final OrderPipelineProperties properties;
+
+    private final PipelineStage collectStage;
+    private final PipelineStage orderStage;
+    private final PipelineStage deliveryStage;
+    // Debits sent to the collect engine and not settled yet, no more than the engine could run at once
+    private final Semaphore collectsInFlight;
+
+    public OrderPipeline(BillingCycleRepository billingCycleRepository,
+                         PaymentRepository paymentRepository,
+                         OrderService orderService,
+                         OutboxService outboxService,
+                         OnePipeCollectEngine collectEngine,
+                         TransactionTemplate transactionTemplate,
+                         ObjectMapper objectMapper,
+                         OrderPipelineProperties properties,
+                         OnePipeProperties onePipeProperties,
+                         MeterRegistry meterRegistry) {
+        this.billingCycleRepository = billingCycleRepository;
+        this.paymentRepository = paymentRepository;
+        this.orderService = orderService;
+        this.outboxService = outboxService;
+        this.collectEngine = collectEngine;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+
+        if (properties.getCollectTimeout().compareTo(properties.getStallTimeout()) >= 0) {
+            throw new IllegalStateException("pipeline.collect-timeout must be shorter than pipeline.stall-timeout");
+        }
+
+        this.collectStage = new PipelineStage("collect",
+                properties.getCollect().getThreads(), properties.getCollect().getQueueCapacity(), meterRegistry);
+        this.orderStage = new PipelineStage("order",
+                properties.getOrder().getThreads(), properties.getOrder().getQueueCapacity(), meterRegistry);
+        this.deliveryStage = new PipelineStage("delivery",
+                properties.getDelivery().getThreads(), properties.getDelivery().getQueueCapacity(), meterRegistry);
+        this.collectsInFlight = new Semaphore(Math.max(1, onePipeProperties.getCollect().getMaxLimit()));
+    }
+
+    // Records the cycle a due subscription is billed for and hands it to the pipeline.
+    // Calling it again for the same cycle returns the stored one and never starts a second charge.
+    public BillingCycle open(Subscription subscription) {
+        LocalDate billingDate = subscription.getNextBillingDate();
+        LocalDateTime now = LocalDateTime.now();
+
+        BillingCycle cycle = billingCycleRepository.open(BillingCycle.builder()
+                .cycleKey(BillingCycle.keyOf(subscription.getId(), billingDate))
+                .subscriptionId(subscription.getId())
+                .userId(subscription.getUserId())
+                .tier(subscription.getTier())
+                .billingDate(billingDate)
+                .amount(subscription.getPrice())
+                .mandateId(subscription.getMandateId())
+                .stage("COLLECT_PENDING")
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+
+        submit(cycle);
+        return cycle;
+    }
+
+    @Scheduled(fixedDelayString = "#{@orderPipelineProperties.recoveryInterval.toMillis()}")
+    public void resumeStalledCycles() {
+        List<BillingCycle> stalled = billingCycleRepository.findByStageInAndUpdatedAtBefore(
+                RESUMABLE_STAGES, staleBefore(), PageRequest.of(0, properties.getRecoveryBatchSize()));
+
+        int resumed = 0;
+        for (BillingCycle cycle : stalled) {
+            // Never block the scheduler thread, whatever does not fit is picked up next sweep
+            if (!offer(cycle)) {
+                break;
+            }
+            resumed++;
+        }
+        if (resumed > 0) {
+            log.info("Resumed {} stalled billing cycles", resumed);
+        }
+    }
+
+    private void submit(BillingCycle cycle) {
+        switch (cycle.getStage()) {
+            case "COLLECT_PENDING", "COLLECTING" -> collectStage.submit(() -> collect(cycle));
+            case "PAID" -> orderStage.submit(() -> createOrder(cycle));
+            case "ORDERED" -> deliveryStage.submit(() -> scheduleDelivery(cycle));
+            default -> log.debug("Billing cycle {} is already {}", cycle.getCycleKey(), cycle.getStage());
+        }
+    }
+
+    private boolean offer(BillingCycle cycle) {
+        return switch (cycle.getStage()) {
+            case "COLLECT_PENDING", "COLLECTING" -> collectStage.offer(() -> collect(cycle));
+            case "PAID" -> orderStage.offer(() -> createOrder(cycle));
+            case "ORDERED" -> deliveryStage.offer(() -> scheduleDelivery(cycle));
+            default -> true;
+        };
+    }
+
+    private void collect(BillingCycle pending) {
+        // Only one worker charges a cycle, a stalled claim is taken over after the stall timeout
+        Optional<BillingCycle> claimed = billingCycleRepository.claimCollection(pending.getId(), staleBefore());
+        if (claimed.isEmpty()) {
+            return;
+        }
+        BillingCycle cycle = claimed.get();
+
+        if (cycle.getMandateId() == null) {
+            failCollection(cycle, null, "Subscription has no payment mandate");
+            return;
+        }
+
+        Payment payment = findOrCreatePayment(cycle);
+
+        // Once the engine is full the worker waits here, and a full collect queue pushes back on billing
+        try {
+            collectsInFlight.acquire();
+        } catch (InterruptedException e) {
+            // Shutting down, the cycle stays COLLECTING and the recovery sweep takes it over
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        // The worker is free as soon as the debit is handed over. The engine's concurrency and rate limits and
+        // its retries all apply while no thread waits, and the result is settled off the HTTP client's event loop
+        // because it writes to Mongo.
+        // Deferred so a request that cannot even be built still reaches the error handler and frees its permit
+        Mono.defer(() -> collectEngine.collectRecurring(
+                        payment.getPaymentReference(),
+                        cycle.getCollectAttempts(),
+                        cycle.getMandateId(),
+                        cycle.getUserId(),
+                        cycle.getAmount()))
+                .timeout(properties.getCollectTimeout())
+                .singleOptional()
+                .publishOn(Schedulers.boundedElastic())
+                .doFinally(signal -> collectsInFlight.release())
+                .subscribe(
+                        response -> settle(cycle, () -> collected(cycle, payment, response.orElse(null))),
+                        error -> settle(cycle, () -> {
+                            if (OnePipeMandateClient.isRejected(error)) {
+                                deferCollection(cycle, error.getMessage());
+                            } else {
+                                retryCollection(cycle, payment, error.getMessage());
+                            }
+                        }));
+    }
+
+    private void collected(BillingCycle cycle, Payment payment, OnePipeResponse response) {
+        if (response == null || !isSuccessful(response)) {
+            String reason = response == null ? "Empty OnePipe response" : response.getMessage();
+            failCollection(cycle, payment, "OnePipe collection failed: " + reason);
+            return;
+        }
+
+        Optional<BillingCycle> paid = transactionTemplate.execute(tx -> {
+            paymentRepository.complete(payment.getId(), "PAID", toJson(response), null);
+            Optional<BillingCycle> advanced = billingCycleRepository.advanceCollection(cycle.getId(), cycle.getCollectAttempts(), "PAID",
+                    new Update().set("paymentReference", payment.getPaymentReference()).unset("failureReason"));
+            advanced.ifPresent(next -> record(next, "BILLING_CYCLE_PAID"));
+            return advanced;
+        });
+
+        paid.ifPresent(next -> orderStage.submit(() -> createOrder(next)));
+    }
+
+    // Same as a stage task failing: logged, and the cycle is left for the recovery sweep
+    private void settle(BillingCycle cycle, Runnable step) {
+        try {
+            step.run();
+        } catch (Exception e) {
+            log.error("Failed to settle collection for billing cycle {}: {}", cycle.getCycleKey(), e.getMessage(), e);
+        }
+    }
+
+    private void createOrder(BillingCycle cycle) {
+        Order order = orderService.createOrder(cycle);
+
+        billingCycleRepository.advance(cycle.getId(), "PAID", "ORDERED", new Update().set("orderId", order.getId()))
+                .ifPresent(next -> deliveryStage.submit(() -> scheduleDelivery(next)));
+    }
+
+    private void scheduleDelivery(BillingCycle cycle) {
+        LocalDate earliest = LocalDate.now().isAfter(cycle.getBillingDate()) ? LocalDate.now() : cycle.getBillingDate();
+        LocalDate deliveryDate = earliest.with(TemporalAdjusters.nextOrSame(properties.getDeliveryDay()));
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            orderService.scheduleDelivery(cycle.getOrderId(), deliveryDate);
+            billingCycleRepository.advance(cycle.getId(), "ORDERED", "SCHEDULED", new Update().set("deliveryDate", deliveryDate))
+                    .ifPresent(next -> record(next, "BILLING_CYCLE_SCHEDULED"));
+        });
+    }
+
+    private Payment findOrCreatePayment(BillingCycle cycle) {
+        // Derived from the cycle, so retries and other workers land on the same payment
+        String paymentReference = "BILL_" + cycle.getId();
+
+        Optional<Payment> existing = paymentRepository.findByPaymentReference(paymentReference);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        try {
+            return paymentRepository.save(Payment.builder()
+                    .userId(cycle.getUserId())
+                    .subscriptionId(cycle.getSubscriptionId())
+                    .amount(cycle.getAmount())
+                    .currency("NGN")
+                    .status("PROCESSING")
+                    .source("BILLING")
+                    .paymentReference(paymentReference)
+                    .onePipeReference(paymentReference)
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        } catch (DuplicateKeyException e) {
+            return paymentRepository.findByPaymentReference(paymentReference).orElseThrow(() -> e);
+        }
+    }
+
+    private void retryCollection(BillingCycle cycle, Payment payment, String reason) {
+        if (cycle.getCollectAttempts() >= properties.getMaxCollectAttempts()) {
+            failCollection(cycle, payment, reason);
+            return;
+        }
+
+        // Back to pending, the recovery sweep tries again once the stall timeout has passed
+        log.warn("Collection attempt {} for billing cycle {} failed: {}", cycle.getCollectAttempts(), cycle.getCycleKey(), reason);
+        billingCycleRepository.advanceCollection(cycle.getId(), cycle.getCollectAttempts(), "COLLECT_PENDING",
+                new Update().set("failureReason", reason));
+    }
+
+    // Turned away by the circuit breaker or bulkhead before reaching OnePipe: back to pending without using up an attempt
+    private void deferCollection(BillingCycle cycle, String reason) {
+        log.warn("OnePipe unavailable, deferred billing cycle {}: {}", cycle.getCycleKey(), reason);
+        billingCycleRepository.advanceCollection(cycle.getId(), cycle.getCollectAttempts(), "COLLECT_PENDING",
+                new Update().inc("collectAttempts", -1).set("failureReason", "Deferred, OnePipe unavailable: " + reason));
+    }
+
+    private void failCollection(BillingCycle cycle, Payment payment, String reason) {
+        log.error("Collection for billing cycle {} failed: {}", cycle.getCycleKey(), reason);
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            // A later claim owns the cycle now, its own attempt decides the payment
+            billingCycleRepository.advanceCollection(cycle.getId(), cycle.getCollectAttempts(), "COLLECTION_FAILED",
+                            new Update().set("failureReason", reason))
+                    .ifPresent(next -> {
+                        if (payment != null) {
+                            paymentRepository.complete(payment.getId(), "FAILED", null, reason);
+                        }
+                        record(next, "BILLING_CYCLE_COLLECTION_FAILED");
+                    });
+        });
+    }
+
+    private void record(BillingCycle cycle, String eventType) {
+        outboxService.record("BILLING_CYCLE", cycle.getId(), eventType, BillingCycleEvent.of(cycle));
+    }
+
+    private boolean isSuccessful(OnePipeResponse response) {
+        return "Successful".equalsIgnoreCase(response.getStatus()) || "SUCCESS".equalsIgnoreCase(response.getStatus());
+    }
+
+    private String toJson(OnePipeResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private LocalDateTime staleBefore() {
+        return LocalDateTime.now().minus(properties.getStallTimeout());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        collectStage.shutdown();
+        orderStage.shutdown();
+        deliveryStage.shutdown();
+    }
+}
@@ -1,15 +1,69 @@
-//package com.dark_store.bukafresh_backend.service.impl;
-//
-//import com.dark_store.bukafresh_backend.service.OrderService;
-//import lombok.RequiredArgsConstructor;
-//import org.springframework.stereotype.Service;
-//
-//@Service
-//@RequiredArgsConstructor
-//public class OrderServiceImpl implements OrderService {
-//
-//    public OrderResponse createOrder(orderRequest request){
-//
-//
-//    }
-//}
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.exception.ResourceNotFoundException;
+import com.dark_store.bukafresh_backend.model.BillingCycle;
+import com.dark_store.bukafresh_backend.model.Order;
+import com.dark_store.bukafresh_backend.repository.OrderRepository;
+import com.dark_store.bukafresh_backend.service.OrderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderServiceImpl implements OrderService {
+
+    private final OrderRepository orderRepository;
+
+    @Override
+    public Order createOrder(BillingCycle cycle) {
+        var existing = orderRepository.findByCycleKey(cycle.getCycleKey());
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        Order order = Order.builder()
+                .subscriptionId(cycle.getSubscriptionId())
+                .userId(cycle.getUserId())
+                .tier(cycle.getTier())
+                .cycleKey(cycle.getCycleKey())
+                // The kit for the tier is picked at fulfilment
+                .products(new ArrayList<>())
+                .status("PENDING")
+                .paymentStatus("PAID")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDate.now())
+                .build();
+
+        try {
+            Order saved = orderRepository.save(order);
+            log.info("Created order {} for subscription {} cycle {}", saved.getId(), cycle.getSubscriptionId(), cycle.getBillingDate());
+            return saved;
+        } catch (DuplicateKeyException e) {
+            // Another worker created it between the lookup and the insert
+            return orderRepository.findByCycleKey(cycle.getCycleKey())
+                    .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        }
+    }
+
+    @Override
+    public Order scheduleDelivery(String orderId, LocalDate deliveryDate) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+
+        if (!"PENDING".equals(order.getStatus())) {
+            return order;
+        }
+
+        order.setDeliveryDate(deliveryDate);
+        order.setStatus("SCHEDULED");
+        order.setUpdatedAt(LocalDate.now());
+        return orderRepository.save(order);
+    }
+}
@@ -0,0 +1,131 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.config.OutboxProperties;
+import com.dark_store.bukafresh_backend.model.OutboxEvent;
+import com.dark_store.bukafresh_backend.repository.LeaseRepository;
+import com.dark_store.bukafresh_backend.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Publishes outbox events to Kafka in commit order per aggregate (see OutboxEventRepository.nextSequence). Delivery is at least once: an event is marked
+// published only after the broker acknowledged it, so consumers dedupe on the eventId header.
+// Only the replica holding the relay lease publishes, so replicas do not send the same batch side by side.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "outbox", name = "relay-enabled", havingValue = "true")
+public class OutboxRelay {
+
+    static final String LEASE_NAME = "outbox-relay";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final LeaseRepository leaseRepository;
+    private final OutboxProperties properties;
+
+    private final String owner = "relay-" + UUID.randomUUID();
+    private volatile Long fencingToken;
+
+    @Scheduled(fixedDelayString = "#{@outboxProperties.pollInterval.toMillis()}")
+    public void relay() {
+        List<OutboxEvent> batch;
+        boolean allPublished;
+        do {
+            // Taken or extended before every batch, the lease outlives a batch's send timeout
+            if (!holdLease()) {
+                return;
+            }
+            batch = outboxEventRepository.findByStatusOrderByCreatedAtAscSequenceAsc(
+                    "PENDING", PageRequest.of(0, properties.getBatchSize()));
+            if (batch.isEmpty()) {
+                return;
+            }
+            allPublished = publish(batch);
+        } while (allPublished && batch.size() == properties.getBatchSize());
+    }
+
+    private boolean holdLease() {
+        Optional<Long> token = leaseRepository.tryAcquire(LEASE_NAME, owner, properties.getLeaseTtl());
+        if (token.isEmpty() && fencingToken != null) {
+            log.info("Outbox relay lease taken over by another replica");
+        }
+        fencingToken = token.orElse(null);
+        return token.isPresent();
+    }
+
+    @PreDestroy
+    void releaseLease() {
+        // Lets another replica take over on its next poll instead of after the TTL
+        Long token = fencingToken;
+        if (token != null) {
+            leaseRepository.release(LEASE_NAME, owner, token);
+        }
+    }
+
+    private boolean publish(List<OutboxEvent> batch) {
+        // Send the whole batch before waiting, the producer groups and compresses it per partition
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            try {
+                sends.add(kafkaTemplate.send(toRecord(event)));
+            } catch (KafkaException e) {
+                // Rejected before it was sent (too large, no metadata), the events behind it wait as well
+                log.warn("Failed to send outbox event {} ({}): {}", event.getId(), event.getEventType(), e.getMessage());
+                break;
+            }
+        }
+        kafkaTemplate.flush();
+
+        long deadline = System.nanoTime() + properties.getSendTimeout().toNanos();
+        List<String> published = new ArrayList<>(batch.size());
+        for (int i = 0; i < sends.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                published.add(event.getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                // Later events for the same key must not overtake this one, retry from here next poll
+                log.warn("Failed to publish outbox event {} ({}): {}", event.getId(), event.getEventType(), e.getMessage());
+                break;
+            }
+        }
+
+        outboxEventRepository.markPublished(published, LocalDateTime.now());
+        log.debug("Published {} of {} outbox events", published.size(), batch.size());
+        return published.size() == batch.size();
+    }
+
+    private ProducerRecord<String, String> toRecord(OutboxEvent event) {
+        String topic = properties.getTopicPrefix() + event.getAggregateType().toLowerCase(Locale.ROOT);
+
+        // Keyed by aggregate so every event of a payment or subscription lands on one partition, in order
+        ProducerRecord<String, String> record = new ProducerRecord<>(topic, event.getAggregateId(), event.getPayload());
+        record.headers().add("eventId", event.getId().getBytes(StandardCharsets.UTF_8));
+        record.headers().add("eventType", event.getEventType().getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
@@ -0,0 +1,49 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.model.OutboxEvent;
+import com.dark_store.bukafresh_backend.model.OutboxSequence;
+import com.dark_store.bukafresh_backend.repository.OutboxEventRepository;
+import com.dark_store.bukafresh_backend.service.OutboxService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void record(String aggregateType, String aggregateId, String eventType, Object payload) {
+        // Outside a transaction the event could be stored without its state change, or the other way round
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox events must be recorded inside a transaction");
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialise " + eventType + " event", e);
+        }
+
+        // The relay publishes in createdAt order, which the sequence keeps in commit order per aggregate
+        OutboxSequence position = outboxEventRepository.nextSequence(aggregateType, aggregateId, LocalDateTime.now());
+
+        outboxEventRepository.save(OutboxEvent.builder()
+                .aggregateType(aggregateType)
+                .aggregateId(aggregateId)
+                .eventType(eventType)
+                .payload(json)
+                .sequence(position.getSequence())
+                .status("PENDING")
+                .createdAt(position.getCreatedAt())
+                .build());
+    }
+}
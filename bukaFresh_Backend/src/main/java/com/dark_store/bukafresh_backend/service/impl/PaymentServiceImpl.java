@@ -1,24 +1,41 @@
 package com.dark_store.bukafresh_backend.service.impl;
 
+import com.dark_store.bukafresh_backend.dto.event.SubscriptionEvent;
 import com.dark_store.bukafresh_backend.dto.request.ProcessPaymentRequest;
+import com.dark_store.bukafresh_backend.dto.response.PaymentPageResponse;
 import com.dark_store.bukafresh_backend.dto.response.PaymentResponse;
 import com.dark_store.bukafresh_backend.exception.BusinessException;
+import com.dark_store.bukafresh_backend.exception.ConflictingStateException;
 import com.dark_store.bukafresh_backend.exception.ResourceNotFoundException;
+import com.dark_store.bukafresh_backend.exception.ServiceUnavailableException;
 import com.dark_store.bukafresh_backend.model.Payment;
 import com.dark_store.bukafresh_backend.model.Subscription;
 import com.dark_store.bukafresh_backend.repository.PaymentRepository;
 import com.dark_store.bukafresh_backend.repository.SubscriptionRepository;
+import com.dark_store.bukafresh_backend.repository.projection.PaymentSummary;
+import com.dark_store.bukafresh_backend.service.OutboxService;
 import com.dark_store.bukafresh_backend.service.PaymentService;
 import com.dark_store.bukafresh_backend.service.clients.OnePipeMandateClient;
 import com.dark_store.bukafresh_backend.util.CurrentUserUtil;
+import com.dark_store.bukafresh_backend.util.PageCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
@@ -26,98 +43,241 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PaymentServiceImpl implements PaymentService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int EXPORT_BATCH_SIZE = 500;
+    private static final int RETRY_BATCH_SIZE = 100;
+    private static final int RETRY_CONCURRENCY = 8;
+
     private final PaymentRepository paymentRepository;
     private final SubscriptionRepository subscriptionRepository;
     private final OnePipeMandateClient onePipeMandateClient;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Longer than any debit can take, a PROCESSING payment older than this lost its worker
+    @Value("${payment_stall_timeout:PT10M}")
+    private Duration stallTimeout;
 
     @Override
-    public PaymentResponse processPayment(ProcessPaymentRequest request) {
+    public Mono<PaymentResponse> processPayment(ProcessPaymentRequest request, String idempotencyKey) {
+        // Read before leaving the request thread, the security context does not follow
         String userId = CurrentUserUtil.getCurrentUserId();
-        
+        String paymentReference = paymentReference("process", userId, request, idempotencyKey);
+
+        // Repository calls block, so they run on boundedElastic rather than the servlet or Netty threads
+        return Mono.fromCallable(() -> recordPayment(userId, request, paymentReference))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(recorded -> !recorded.created()
+                        ? Mono.just(recorded.payment())
+                        : debit(recorded.payment())
+                                // Anything from here on is stored against the Idempotency-Key, the debit has been sent
+                                .onErrorMap(e -> {
+                                    log.error("Failed to process payment for subscription {}: {}", request.getSubscriptionId(), e.getMessage());
+                                    return new BusinessException("Failed to process payment: " + e.getMessage());
+                                }))
+                // PENDING means OnePipe was unavailable and the payment is queued for a retry,
+                // PROCESSING that an earlier run of the same request is still waiting for its debit
+                .flatMap(payment -> "FAILED".equals(payment.getStatus())
+                        ? Mono.error(new BusinessException("Payment processing failed: " + payment.getFailureReason()))
+                        : Mono.just(mapToResponse(payment)));
+    }
+
+    @Override
+    public PaymentResponse submitPayment(ProcessPaymentRequest request, String idempotencyKey) {
+        String userId = CurrentUserUtil.getCurrentUserId();
+        RecordedPayment recorded = recordPayment(userId, request, paymentReference("submit", userId, request, idempotencyKey));
+        Payment payment = recorded.payment();
+
+        if (recorded.created()) {
+            // Completed by the debit result or the OnePipe callback, whichever lands first
+            debit(payment).subscribe(
+                    completed -> log.info("Payment {} finished as {}", completed.getPaymentReference(), completed.getStatus()),
+                    e -> log.error("Failed to record result of payment {}: {}", payment.getPaymentReference(), e.getMessage(), e)
+            );
+            log.info("Payment {} accepted for subscription {}", payment.getPaymentReference(), request.getSubscriptionId());
+        }
+        return mapToResponse(payment);
+    }
+
+    @Override
+    public PaymentResponse refresh(PaymentResponse response) {
+        return paymentRepository.findByPaymentReference(response.getPaymentReference())
+                .map(this::mapToResponse)
+                .orElse(response);
+    }
+
+    // Finds the payment an earlier run of the same request recorded, or records a new one. Nothing has been sent
+    // to OnePipe yet, so a failing Mongo is reported as ServiceUnavailableException and the client may try again.
+    private RecordedPayment recordPayment(String userId, ProcessPaymentRequest request, String paymentReference) {
+        try {
+            Optional<Payment> earlier = paymentRepository.findByPaymentReference(paymentReference);
+            if (earlier.isPresent()) {
+                log.info("Payment {} was already recorded for this request", paymentReference);
+                return new RecordedPayment(earlier.get(), false);
+            }
+
+            Subscription subscription = findPendingSubscription(userId, request.getSubscriptionId());
+            return new RecordedPayment(paymentRepository.save(buildPayment(userId, subscription, request, paymentReference)), true);
+        } catch (BusinessException | ResourceNotFoundException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.error("Failed to record payment for subscription {}: {}", request.getSubscriptionId(), e.getMessage());
+            throw new ServiceUnavailableException("Payment could not be recorded, please try again");
+        }
+    }
+
+    // Derived from the Idempotency-Key when there is one, so the payment itself marks a request that already ran
+    private static String paymentReference(String operation, String userId, ProcessPaymentRequest request, String idempotencyKey) {
+        UUID id = idempotencyKey == null || idempotencyKey.isBlank()
+                ? UUID.randomUUID()
+                : UUID.nameUUIDFromBytes(String.join(":", operation, userId, request.getSubscriptionId(), idempotencyKey)
+                        .getBytes(StandardCharsets.UTF_8));
+        return "PAY_" + id.toString().replace("-", "").substring(0, 16).toUpperCase();
+    }
+
+    private Subscription findPendingSubscription(String userId, String subscriptionId) {
         // Validate subscription exists and belongs to user
-        Subscription subscription = subscriptionRepository.findById(request.getSubscriptionId())
+        Subscription subscription = subscriptionRepository.findById(subscriptionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Subscription not found"));
-        
+
         if (!subscription.getUserId().equals(userId)) {
-            throw new BusinessException("Subscription does not belong to current user");
+            throw new ConflictingStateException("Subscription does not belong to current user");
         }
-        
+
         if (!"PENDING".equals(subscription.getStatus())) {
-            throw new BusinessException("Subscription is not in pending status");
+            throw new ConflictingStateException("Subscription is not in pending status");
         }
+        return subscription;
+    }
 
-        try {
-            // Generate payment reference
-            String paymentReference = "PAY_" + UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase();
-            
-            // Create payment record
-            Payment payment = Payment.builder()
-                    .userId(userId)
-                    .subscriptionId(request.getSubscriptionId())
-                    .amount(getSubscriptionAmount(subscription.getTier()))
-                    .currency("NGN")
-                    .bvn(request.getBvn())
-                    .accountNumber(request.getAccountNumber())
-                    .bankName(request.getBankName())
-                    .phoneNumber(request.getPhoneNumber())
-                    .firstName(request.getFirstName())
-                    .lastName(request.getLastName())
-                    .status("PROCESSING")
-                    .paymentReference(paymentReference)
-                    .createdAt(LocalDateTime.now())
-                    .updatedAt(LocalDateTime.now())
-                    .build();
-
-            Payment savedPayment = paymentRepository.save(payment);
-            
-            // Call OnePipe API for direct debit
-            try {
-                String onePipeResponse = onePipeMandateClient.processDirectDebit(
-                    paymentReference,
-                    request.getBvn(),
-                    request.getAccountNumber(),
-                    request.getBankName(),
-                    request.getPhoneNumber(),
-                    request.getFirstName(),
-                    request.getLastName(),
-                    savedPayment.getAmount()
-                );
-                
-                // Update payment with OnePipe response
-                savedPayment.setOnePipeResponse(onePipeResponse);
-                savedPayment.setStatus("PAID");
-                savedPayment.setPaidAt(LocalDateTime.now());
-                savedPayment.setUpdatedAt(LocalDateTime.now());
-                
-                // Update subscription status to ACTIVE
-                subscription.setStatus("ACTIVE");
-                subscription.setUpdatedAt(LocalDateTime.now());
-                subscriptionRepository.save(subscription);
-                
-                savedPayment = paymentRepository.save(savedPayment);
-                
-                log.info("Payment processed successfully for subscription {}", request.getSubscriptionId());
-                
-            } catch (Exception onePipeError) {
-                log.error("OnePipe payment failed for payment {}: {}", paymentReference, onePipeError.getMessage());
-                
-                // Update payment status to FAILED
-                savedPayment.setStatus("FAILED");
-                savedPayment.setFailureReason(onePipeError.getMessage());
-                savedPayment.setUpdatedAt(LocalDateTime.now());
-                savedPayment = paymentRepository.save(savedPayment);
-                
-                throw new BusinessException("Payment processing failed: " + onePipeError.getMessage());
-            }
-            
-            return mapToResponse(savedPayment);
-            
-        } catch (Exception e) {
-            log.error("Failed to process payment for subscription {}: {}", request.getSubscriptionId(), e.getMessage());
-            throw new BusinessException("Failed to process payment: " + e.getMessage());
+    private Payment buildPayment(String userId, Subscription subscription, ProcessPaymentRequest request, String paymentReference) {
+        // Our reference is sent as the OnePipe transaction reference, so callbacks resolve to it
+        return Payment.builder()
+                .userId(userId)
+                .subscriptionId(request.getSubscriptionId())
+                .amount(getSubscriptionAmount(subscription.getTier()))
+                .currency("NGN")
+                .bvn(request.getBvn())
+                .accountNumber(request.getAccountNumber())
+                .bankName(request.getBankName())
+                .phoneNumber(request.getPhoneNumber())
+                .firstName(request.getFirstName())
+                .lastName(request.getLastName())
+                .status("PROCESSING")
+                .source("CHECKOUT")
+                .paymentReference(paymentReference)
+                .onePipeReference(paymentReference)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private Mono<Payment> debit(Payment payment) {
+        return onePipeMandateClient.processDirectDebit(
+                        payment.getPaymentReference(),
+                        payment.getBvn(),
+                        payment.getAccountNumber(),
+                        payment.getBankName(),
+                        payment.getPhoneNumber(),
+                        payment.getFirstName(),
+                        payment.getLastName(),
+                        payment.getAmount()
+                )
+                // Back off the timer/event-loop thread before touching the repositories
+                .publishOn(Schedulers.boundedElastic())
+                .map(onePipeResponse -> completePayment(payment, "PAID", onePipeResponse, null))
+                .onErrorResume(onePipeError -> {
+                    if (OnePipeMandateClient.isRejected(onePipeError)) {
+                        // Failed fast without reaching OnePipe, so the debit is retried once the circuit closes
+                        log.warn("OnePipe unavailable, queued payment {}: {}", payment.getPaymentReference(), onePipeError.getMessage());
+                        return Mono.fromCallable(() -> queuePayment(payment, onePipeError.getMessage()))
+                                .subscribeOn(Schedulers.boundedElastic());
+                    }
+                    log.error("OnePipe payment failed for payment {}: {}", payment.getPaymentReference(), onePipeError.getMessage());
+                    return Mono.fromCallable(() -> completePayment(payment, "FAILED", null, onePipeError.getMessage()))
+                            .subscribeOn(Schedulers.boundedElastic());
+                });
+    }
+
+    private Payment queuePayment(Payment payment, String reason) {
+        return paymentRepository.queue(payment.getId(), "Queued, OnePipe unavailable: " + reason)
+                .orElseGet(() -> paymentRepository.findById(payment.getId()).orElse(payment));
+    }
+
+    @Override
+    public int retryQueuedPayments() {
+        // Submitted or claimed payments whose node went down before the debit result was stored.
+        // The same payment reference is sent again, so OnePipe treats it as the same transaction.
+        long requeued = paymentRepository.requeueStalled(LocalDateTime.now().minus(stallTimeout));
+        if (requeued > 0) {
+            log.warn("Requeued {} payments stuck in PROCESSING", requeued);
+        }
+
+        if (!onePipeMandateClient.acceptsDirectDebits()) {
+            return 0;
+        }
+
+        List<Payment> claimed = new ArrayList<>();
+        Optional<Payment> next;
+        while (claimed.size() < RETRY_BATCH_SIZE && (next = paymentRepository.claimQueued()).isPresent()) {
+            claimed.add(next.get());
+        }
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        log.info("Retrying {} queued payments", claimed.size());
+        Flux.fromIterable(claimed)
+                .flatMap(this::debit, RETRY_CONCURRENCY)
+                .doOnNext(payment -> log.info("Queued payment {} finished as {}", payment.getPaymentReference(), payment.getStatus()))
+                .blockLast();
+        return claimed.size();
+    }
+
+    private Payment completePayment(Payment payment, String status, String onePipeResponse, String failureReason) {
+        // The payment, the subscription it activates and their outbox events commit together
+        Optional<Payment> completed = transactionTemplate.execute(tx -> {
+            Optional<Payment> result = paymentRepository.complete(payment.getId(), status, onePipeResponse, failureReason);
+            result.ifPresent(this::recordCompletion);
+            return result;
+        });
+
+        if (completed.isEmpty()) {
+            log.info("Payment {} was already paid, ignoring {} result", payment.getPaymentReference(), status);
+            return paymentRepository.findById(payment.getId()).orElse(payment);
+        }
+
+        if ("PAID".equals(status)) {
+            log.info("Payment processed successfully for subscription {}", payment.getSubscriptionId());
+        }
+        return completed.get();
+    }
+
+    private void recordCompletion(Payment payment) {
+        outboxService.record("PAYMENT", payment.getId(), "PAYMENT_" + payment.getStatus(), mapToResponse(payment));
+
+        // Billing payments belong to an already active subscription, their cycle moves on by itself
+        if (!"PAID".equals(payment.getStatus()) || isBilling(payment)) {
+            return;
+        }
+
+        // Never throws: OnePipe has taken the money, so the payment result is committed whatever the subscription's state.
+        // A late callback or retry must not reactivate a subscription that was cancelled or paused since.
+        Optional<Subscription> activated = subscriptionRepository.activatePending(payment.getSubscriptionId(), LocalDateTime.now());
+        if (activated.isPresent()) {
+            outboxService.record("SUBSCRIPTION", activated.get().getId(), "SUBSCRIPTION_ACTIVE", SubscriptionEvent.of(activated.get()));
+        } else {
+            log.warn("Payment {} was paid but subscription {} is missing or no longer pending, left unchanged",
+                    payment.getPaymentReference(), payment.getSubscriptionId());
+            outboxService.record("PAYMENT", payment.getId(), "PAYMENT_UNAPPLIED", mapToResponse(payment));
         }
     }
 
+    private static boolean isBilling(Payment payment) {
+        return "BILLING".equals(payment.getSource()) || payment.getPaymentReference().startsWith("BILL_");
+    }
+
     @Override
     public PaymentResponse getPaymentById(String paymentId) {
         Payment payment = paymentRepository.findById(paymentId)
@@ -132,46 +292,81 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
-    public List<PaymentResponse> getUserPayments(String userId) {
-        List<Payment> payments = paymentRepository.findByUserId(userId);
-        return payments.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    public PaymentPageResponse getUserPayments(String userId, String cursor, Integer size) {
+        int limit = pageSize(size);
+        List<PaymentSummary> payments = paymentRepository.findUserPaymentPage(userId, decodeCursor(cursor), limit + 1);
+        return toPage(payments, limit);
     }
 
     @Override
-    public List<PaymentResponse> getSubscriptionPayments(String subscriptionId) {
-        List<Payment> payments = paymentRepository.findBySubscriptionId(subscriptionId);
-        return payments.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    public PaymentPageResponse getSubscriptionPayments(String subscriptionId, String cursor, Integer size) {
+        int limit = pageSize(size);
+        List<PaymentSummary> payments = paymentRepository.findSubscriptionPaymentPage(subscriptionId, decodeCursor(cursor), limit + 1);
+        return toPage(payments, limit);
+    }
+
+    @Override
+    public void exportUserPayments(String userId, Consumer<PaymentResponse> sink) {
+        PageCursor after = null;
+        List<PaymentSummary> batch;
+        do {
+            batch = paymentRepository.findUserPaymentPage(userId, after, EXPORT_BATCH_SIZE);
+            for (PaymentSummary payment : batch) {
+                sink.accept(mapToResponse(payment));
+            }
+            if (!batch.isEmpty()) {
+                after = cursorOf(batch.get(batch.size() - 1));
+            }
+        } while (batch.size() == EXPORT_BATCH_SIZE);
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null || size < 1) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    private PageCursor decodeCursor(String cursor) {
+        return cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+    }
+
+    // One extra row is fetched to tell whether another page follows
+    private PaymentPageResponse toPage(List<PaymentSummary> payments, int limit) {
+        boolean hasMore = payments.size() > limit;
+        List<PaymentSummary> page = hasMore ? payments.subList(0, limit) : payments;
+
+        return PaymentPageResponse.builder()
+                .items(page.stream().map(this::mapToResponse).collect(Collectors.toList()))
+                .nextCursor(hasMore ? cursorOf(page.get(page.size() - 1)).encode() : null)
+                .build();
+    }
+
+    private PageCursor cursorOf(PaymentSummary payment) {
+        return new PageCursor(payment.getCreatedAt(), payment.getId());
+    }
+
+    @Override
+    public PaymentResponse getPaymentByReference(String paymentReference) {
+        Payment payment = paymentRepository.findByPaymentReference(paymentReference)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment not found"));
+
+        String userId = CurrentUserUtil.getCurrentUserId();
+        if (!payment.getUserId().equals(userId)) {
+            throw new BusinessException("Payment does not belong to current user");
+        }
+
+        return mapToResponse(payment);
     }
 
     @Override
     public PaymentResponse handleOnePipeCallback(String onePipeReference, String status, String response) {
         Payment payment = paymentRepository.findByOnePipeReference(onePipeReference)
                 .orElseThrow(() -> new ResourceNotFoundException("Payment not found for OnePipe reference"));
-        
-        payment.setOnePipeResponse(response);
-        payment.setUpdatedAt(LocalDateTime.now());
-        
-        if ("SUCCESS".equalsIgnoreCase(status)) {
-            payment.setStatus("PAID");
-            payment.setPaidAt(LocalDateTime.now());
-            
-            // Update subscription status to ACTIVE
-            Subscription subscription = subscriptionRepository.findById(payment.getSubscriptionId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Subscription not found"));
-            subscription.setStatus("ACTIVE");
-            subscription.setUpdatedAt(LocalDateTime.now());
-            subscriptionRepository.save(subscription);
-            
-        } else {
-            payment.setStatus("FAILED");
-            payment.setFailureReason("OnePipe payment failed: " + status);
-        }
-        
-        Payment updatedPayment = paymentRepository.save(payment);
+
+        Payment updatedPayment = "SUCCESS".equalsIgnoreCase(status)
+                ? completePayment(payment, "PAID", response, null)
+                : completePayment(payment, "FAILED", response, "OnePipe payment failed: " + status);
         return mapToResponse(updatedPayment);
     }
 
@@ -201,10 +396,30 @@ public class PaymentServiceImpl implements PaymentService {
                 .build();
     }
 
+    private PaymentResponse mapToResponse(PaymentSummary payment) {
+        return PaymentResponse.builder()
+                .id(payment.getId())
+                .userId(payment.getUserId())
+                .subscriptionId(payment.getSubscriptionId())
+                .amount(payment.getAmount())
+                .currency(payment.getCurrency())
+                .status(payment.getStatus())
+                .paymentReference(payment.getPaymentReference())
+                .bankName(payment.getBankName())
+                .accountNumber(maskAccountNumber(payment.getAccountNumber()))
+                .createdAt(payment.getCreatedAt())
+                .paidAt(payment.getPaidAt())
+                .failureReason(payment.getFailureReason())
+                .build();
+    }
+
     private String maskAccountNumber(String accountNumber) {
         if (accountNumber == null || accountNumber.length() < 4) {
             return "****";
         }
         return "******" + accountNumber.substring(accountNumber.length() - 4);
     }
-}
\ No newline at end of file
+
+    private record RecordedPayment(Payment payment, boolean created) {
+    }
+}
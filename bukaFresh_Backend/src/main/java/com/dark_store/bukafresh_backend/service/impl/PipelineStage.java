@@ -0,0 +1,66 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// A fixed pool of workers fed by a bounded queue. Producers block on a full queue, so a slow stage
+// pushes back on the one before it instead of buffering without limit.
+@Slf4j
+class PipelineStage {
+
+    private final String name;
+    private final BlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor executor;
+
+    PipelineStage(String name, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue,
+                new CustomizableThreadFactory("pipeline-" + name + "-"));
+        // Workers are started up front and only ever take from the queue, so tasks can be queued directly
+        executor.prestartAllCoreThreads();
+
+        Gauge.builder("bukafresh.pipeline.queue", queue, BlockingQueue::size)
+                .tag("stage", name)
+                .register(meterRegistry);
+    }
+
+    // Waits for room in the queue
+    void submit(Runnable task) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        try {
+            queue.put(guarded(task));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Queues the task only if there is room, false when the stage is full
+    boolean offer(Runnable task) {
+        return !executor.isShutdown() && queue.offer(guarded(task));
+    }
+
+    void shutdown() {
+        // Queued work is left to the recovery sweep, its state is in Mongo
+        executor.shutdownNow();
+    }
+
+    private Runnable guarded(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Pipeline stage {} task failed: {}", name, e.getMessage(), e);
+            }
+        };
+    }
+}
@@ -6,11 +6,13 @@ import com.dark_store.bukafresh_backend.service.SecurityAlertService;
 import com.dark_store.bukafresh_backend.service.emailService.EmailDetails;
 import com.dark_store.bukafresh_backend.service.emailService.IEmailService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 
+@Slf4j
 @Service
 public class SecurityAlertServiceImpl implements SecurityAlertService {
 
@@ -61,7 +63,7 @@ public class SecurityAlertServiceImpl implements SecurityAlertService {
     public void SendEmailVerificationToNewUser(User savedUser, String token) {
         String userId = savedUser.getId();
         String verificationUrl = String.format("%s/verify-email?userId=%s&token=%s", frontendUrl, userId, token);
-        System.out.println("verification url: " + verificationUrl);
+        log.debug("verification url: {}", verificationUrl);
 
         String htmlBody = """
         <html>
@@ -1,17 +1,23 @@
 package com.dark_store.bukafresh_backend.service.impl;
 
+import com.dark_store.bukafresh_backend.dto.event.SubscriptionEvent;
 import com.dark_store.bukafresh_backend.dto.request.CreateSubscriptionRequest;
 import com.dark_store.bukafresh_backend.dto.response.SubscriptionResponse;
 import com.dark_store.bukafresh_backend.exception.BusinessException;
+import com.dark_store.bukafresh_backend.exception.ConflictingStateException;
 import com.dark_store.bukafresh_backend.exception.ResourceNotFoundException;
 import com.dark_store.bukafresh_backend.model.Subscription;
 import com.dark_store.bukafresh_backend.repository.SubscriptionRepository;
+import com.dark_store.bukafresh_backend.service.BillingService;
+import com.dark_store.bukafresh_backend.service.OutboxService;
 import com.dark_store.bukafresh_backend.service.SubscriptionService;
 import com.dark_store.bukafresh_backend.service.clients.OnePipeMandateClient;
+import com.dark_store.bukafresh_backend.util.BillingPeriod;
 import com.dark_store.bukafresh_backend.util.CurrentUserUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -25,6 +31,9 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 
     private final SubscriptionRepository subscriptionRepository;
     private final OnePipeMandateClient onePipeMandateClient;
+    private final BillingService billingService;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public SubscriptionResponse createSubscription(CreateSubscriptionRequest request) {
@@ -38,7 +47,7 @@ public class SubscriptionServiceImpl implements SubscriptionService {
                                "INACTIVE".equals(sub.getStatus()));
         
         if (hasAnySubscription) {
-            throw new BusinessException("User already has a subscription. Please complete payment for your existing subscription or delete it before creating a new one.");
+            throw new ConflictingStateException("User already has a subscription. Please complete payment for your existing subscription or delete it before creating a new one.");
         }
 
         try {
@@ -49,7 +58,7 @@ public class SubscriptionServiceImpl implements SubscriptionService {
             subscription.setStatus("PENDING"); // Changed from ACTIVE to PENDING
             subscription.setPrice(request.getPrice());
             subscription.setBillingCycle(request.getBillingCycle());
-            subscription.setNextBillingDate(calculateNextBillingDate(request.getBillingCycle()));
+            subscription.setNextBillingDate(BillingPeriod.next(request.getBillingCycle(), LocalDate.now()));
             subscription.setCreatedAt(LocalDateTime.now());
             subscription.setUpdatedAt(LocalDateTime.now());
 
@@ -66,21 +75,10 @@ public class SubscriptionServiceImpl implements SubscriptionService {
         }
     }
 
-    private LocalDate calculateNextBillingDate(String billingCycle) {
-        LocalDate now = LocalDate.now();
-        return switch (billingCycle) {
-            case "MONTHLY" -> now.plusMonths(1);
-            case "YEARLY" -> now.plusYears(1);
-            default -> now.plusMonths(1);
-        };
-    }
-
     @Override
     public SubscriptionResponse getUserSubscription(String userId) {
         List<Subscription> subscriptions = subscriptionRepository.findByUserId(userId);
-        System.out.println("Subscription" + subscriptions);
-
-        System.out.println("user id for sub" + userId);
+        log.debug("Found {} subscriptions for user {}", subscriptions.size(), userId);
         Subscription activeSubscription = subscriptions.stream()
                 .filter(sub -> "ACTIVE".equals(sub.getStatus().toUpperCase()))
                 .findFirst()
@@ -97,7 +95,7 @@ public class SubscriptionServiceImpl implements SubscriptionService {
         subscription.setStatus(status);
         subscription.setUpdatedAt(LocalDateTime.now());
         
-        Subscription updatedSubscription = subscriptionRepository.save(subscription);
+        Subscription updatedSubscription = saveWithEvent(subscription);
         
         log.info("Updated subscription {} status to {}", subscriptionId, status);
         
@@ -131,13 +129,22 @@ public class SubscriptionServiceImpl implements SubscriptionService {
         subscription.setStatus("ACTIVE");
         subscription.setUpdatedAt(LocalDateTime.now());
         
-        Subscription activatedSubscription = subscriptionRepository.save(subscription);
+        Subscription activatedSubscription = saveWithEvent(subscription);
         
         log.info("Activated subscription {} for user {}", subscriptionId, subscription.getUserId());
         
         return mapToResponse(activatedSubscription);
     }
 
+    // The status change and its outbox event commit together
+    private Subscription saveWithEvent(Subscription subscription) {
+        return transactionTemplate.execute(tx -> {
+            Subscription saved = subscriptionRepository.save(subscription);
+            outboxService.record("SUBSCRIPTION", saved.getId(), "SUBSCRIPTION_" + saved.getStatus(), SubscriptionEvent.of(saved));
+            return saved;
+        });
+    }
+
     @Override
     public List<SubscriptionResponse> getAllUserSubscriptions(String userId) {
         List<Subscription> subscriptions = subscriptionRepository.findByUserId(userId);
@@ -149,26 +156,7 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 
     @Override
     public void processDueSubscriptions() {
-        LocalDate today = LocalDate.now();
-        List<Subscription> dueSubscriptions = subscriptionRepository.findByNextBillingDate(today);
-
-        for (Subscription sub : dueSubscriptions) {
-            try {
-                // TODO: Call OnePipe collect API to charge customer
-                // TODO: Create order in Order collection
-                // TODO: Update nextBillingDate
-                log.info("Processing subscription for user: {}", sub.getUserId());
-                
-                // Update next billing date
-                sub.setNextBillingDate(today.plusMonths(1));
-                sub.setUpdatedAt(LocalDateTime.now());
-                subscriptionRepository.save(sub);
-                
-            } catch (Exception e) {
-                log.error("Failed to process subscription {} for user {}: {}", 
-                         sub.getId(), sub.getUserId(), e.getMessage());
-            }
-        }
+        billingService.runBilling(LocalDate.now());
     }
 
     private SubscriptionResponse mapToResponse(Subscription subscription) {
@@ -1,5 +1,6 @@
 package com.dark_store.bukafresh_backend.service.impl;
 
+import com.dark_store.bukafresh_backend.config.CustomUserDetailsService;
 import com.dark_store.bukafresh_backend.config.JwtUtil;
 import com.dark_store.bukafresh_backend.dto.request.CheckoutRegisterRequest;
 import com.dark_store.bukafresh_backend.dto.request.CreateUserRequest;
@@ -17,7 +18,9 @@ import com.dark_store.bukafresh_backend.repository.UserRepository;
 import com.dark_store.bukafresh_backend.service.ProfileService;
 import com.dark_store.bukafresh_backend.service.SecurityAlertService;
 import com.dark_store.bukafresh_backend.service.UserService;
+import com.dark_store.bukafresh_backend.service.VerificationTokenService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -27,6 +30,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+@Slf4j
 @RequiredArgsConstructor
 @Service
 public class UserServiceImpl implements UserService {
@@ -37,6 +41,8 @@ public class UserServiceImpl implements UserService {
     private final AuthenticationManager authenticationManager;
     private final AddressRepository addressRepository;
     private final ProfileService profileService;
+    private final CustomUserDetailsService userDetailsService;
+    private final VerificationTokenService verificationTokenService;
 
     @Override
     public void createAccount(CreateUserRequest request) {
@@ -47,14 +53,14 @@ public class UserServiceImpl implements UserService {
             );
         }
 
-        String plainToken = UUID.randomUUID().toString();
+        String plainToken = verificationTokenService.generateToken();
 
         User savedUser = userRepository.save(
                 User.builder()
                         .email(request.email())
                         .password(passwordEncoder.encode(request.password()))
                         .emailVerified(false)
-                        .emailVerificationToken(passwordEncoder.encode(plainToken))
+                        .emailVerificationToken(verificationTokenService.hash(plainToken))
                         .emailVerificationTokenExpiry(LocalDateTime.now().plusMinutes(30))
                         .role(Role.USER)
                         .build()
@@ -81,7 +87,7 @@ public class UserServiceImpl implements UserService {
             throw new UserAlreadyVerifiedException("User Already Verified");
         }
 
-        if (!passwordEncoder.matches(token, user.getEmailVerificationToken())) {
+        if (!verificationTokenService.matches(token, user.getEmailVerificationToken())) {
             throw new TokenNotFoundException("Invalid token");
         }
 
@@ -95,6 +101,7 @@ public class UserServiceImpl implements UserService {
         user.setEmailVerificationTokenExpiry(null);
 
         User savedUser = userRepository.save(user);
+        userDetailsService.evict(savedUser.getId());
 
         String jwtToken = jwtUtil.generateToken(savedUser);
 
@@ -127,14 +134,14 @@ public class UserServiceImpl implements UserService {
             throw new UserAlreadyExistsException("Email already registered");
         }
 
-        String plainToken = UUID.randomUUID().toString();
+        String plainToken = verificationTokenService.generateToken();
 
         User savedUser = userRepository.save(
                 User.builder()
                         .email(request.email())
                         .password(passwordEncoder.encode(request.password()))
                         .emailVerified(false) // 👈 critical
-                        .emailVerificationToken(passwordEncoder.encode(plainToken))
+                        .emailVerificationToken(verificationTokenService.hash(plainToken))
                         .emailVerificationTokenExpiry(LocalDateTime.now().plusMinutes(30))
                         .role(Role.USER)
                         .build()
@@ -176,19 +183,20 @@ public class UserServiceImpl implements UserService {
             throw new BusinessException("Email is already verified");
         }
 
-        String newToken = UUID.randomUUID().toString();
+        String newToken = verificationTokenService.generateToken();
 
-        user.setEmailVerificationToken(passwordEncoder.encode(newToken));
+        user.setEmailVerificationToken(verificationTokenService.hash(newToken));
         user.setEmailVerificationTokenExpiry(LocalDateTime.now().plusMinutes(30));
 
         userRepository.save(user);
+        userDetailsService.evict(user.getId());
 
         securityAlertService.SendEmailVerificationToNewUser(user, newToken);
     }
 
     @Override
     public ProfileResponse getCurrentUserProfile(String userId) {
-        System.out.println("User id" + userId);
+        log.debug("Loading profile for user {}", userId);
         Profile profile = profileService.getProfileByUserId(userId);
         return ProfileResponse.fromEntity(profile);
     }
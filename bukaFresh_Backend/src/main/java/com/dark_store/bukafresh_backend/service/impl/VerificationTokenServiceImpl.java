@@ -0,0 +1,81 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.service.VerificationTokenService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Verification tokens are 256 random bits, so a keyed HMAC is enough to protect them at rest; slow hashing adds nothing
+@Service
+public class VerificationTokenServiceImpl implements VerificationTokenService {
+
+    private static final String PREFIX = "hmac:";
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final PasswordEncoder passwordEncoder;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+
+    public VerificationTokenServiceImpl(PasswordEncoder passwordEncoder,
+                                        @Value("${verification_token_secret:${jwt_secret}}") String secret) {
+        this.passwordEncoder = passwordEncoder;
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.mac = ThreadLocal.withInitial(this::newMac);
+    }
+
+    @Override
+    public String generateToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    @Override
+    public String hash(String token) {
+        return PREFIX + Base64.getEncoder().encodeToString(digest(token));
+    }
+
+    @Override
+    public boolean matches(String token, String storedHash) {
+        if (token == null || storedHash == null) {
+            return false;
+        }
+
+        if (!storedHash.startsWith(PREFIX)) {
+            // Issued before the switch to HMAC, accepted until it expires
+            return passwordEncoder.matches(token, storedHash);
+        }
+
+        byte[] expected;
+        try {
+            expected = Base64.getDecoder().decode(storedHash.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected, digest(token));
+    }
+
+    private byte[] digest(String token) {
+        // doFinal resets the Mac, so the per-thread instance can be reused
+        return mac.get().doFinal(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance("HmacSHA256");
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC initialisation failed", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.dark_store.bukafresh_backend.util;
+
+import java.time.LocalDate;
+
+public final class BillingPeriod {
+
+    private BillingPeriod() {}
+
+    // The billing date one cycle after from, unknown or missing cycles are billed monthly
+    public static LocalDate next(String billingCycle, LocalDate from) {
+        return "YEARLY".equals(billingCycle) ? from.plusYears(1) : from.plusMonths(1);
+    }
+}
@@ -1,26 +1,58 @@
 package com.dark_store.bukafresh_backend.util;
 
-import com.dark_store.bukafresh_backend.service.SubscriptionService;
+import com.dark_store.bukafresh_backend.service.BillingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class BillingScheduler {
 
-    private final SubscriptionService subscriptionService;
+    private final BillingService billingService;
 
+    // Async so the scheduler thread stays free for the partition poller while this node coordinates
+    @Async
     @Scheduled(cron = "0 0 0 * * ?") // Run daily at midnight
     public void runDailyBilling() {
         log.info("Starting daily billing process");
         try {
-            subscriptionService.processDueSubscriptions();
-            log.info("Daily billing process completed successfully");
+            billingService.runBilling(LocalDate.now())
+                    .ifPresent(summary -> log.info("Daily billing process completed: {} processed, {} failed",
+                            summary.getProcessed(), summary.getFailed()));
         } catch (Exception e) {
             log.error("Error during daily billing process: {}", e.getMessage(), e);
         }
     }
+
+    // Picks up a run that was cut short by a restart instead of waiting for the next midnight
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedBilling() {
+        try {
+            billingService.resumeInterruptedRuns();
+        } catch (Exception e) {
+            log.error("Error resuming interrupted billing: {}", e.getMessage(), e);
+        }
+    }
+
+    // Every node works on published partitions, whichever one is coordinating the run
+    @Scheduled(fixedDelayString = "#{@billingProperties.workerPollInterval.toMillis()}")
+    public void pollBillingPartitions() {
+        try {
+            int claimed = billingService.claimPartitions();
+            if (claimed > 0) {
+                log.debug("Claimed {} billing partitions", claimed);
+            }
+        } catch (Exception e) {
+            log.error("Error claiming billing partitions: {}", e.getMessage(), e);
+        }
+    }
 }
@@ -2,20 +2,33 @@ package com.dark_store.bukafresh_backend.util;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 public final class MD5Hash {
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // MessageDigest is stateful and not thread-safe, digest() resets it for the next call
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to generate OnePipe signature", e);
+        }
+    });
+
     private MD5Hash() {}
     public static String generate(String requestRef, String clientSecret) {
         try {
-            String payload = requestRef + ";" + clientSecret;
-
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(payload.getBytes(StandardCharsets.UTF_8));
+            MessageDigest md = DIGEST.get();
+            md.update(requestRef.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) ';');
+            byte[] digest = md.digest(clientSecret.getBytes(StandardCharsets.UTF_8));
 
             return toHex(digest);
 
         } catch (Exception e) {
+            DIGEST.get().reset();
             throw new IllegalStateException(
                     "Failed to generate OnePipe signature", e
             );
@@ -23,11 +36,11 @@ public final class MD5Hash {
     }
 
     private static String toHex(byte[] bytes) {
-        StringBuilder hex = new StringBuilder(bytes.length * 2);
-        for (byte b : bytes) {
-            hex.append(String.format("%02x", b));
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            hex[j++] = HEX[(bytes[i] >> 4) & 0x0f];
+            hex[j++] = HEX[bytes[i] & 0x0f];
         }
-        return hex.toString();
+        return new String(hex);
     }
 }
-
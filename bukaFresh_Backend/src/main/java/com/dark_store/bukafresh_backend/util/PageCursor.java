@@ -0,0 +1,27 @@
+package com.dark_store.bukafresh_backend.util;
+
+import com.dark_store.bukafresh_backend.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Position after the last item of a page ordered by createdAt then id, both descending.
+// Sent to clients as an opaque base64url string.
+public record PageCursor(LocalDateTime createdAt, String id) {
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid page cursor");
+        }
+    }
+}
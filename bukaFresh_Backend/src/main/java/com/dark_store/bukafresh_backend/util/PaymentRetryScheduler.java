@@ -0,0 +1,28 @@
+package com.dark_store.bukafresh_backend.util;
+
+import com.dark_store.bukafresh_backend.service.PaymentService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentRetryScheduler {
+
+    private final PaymentService paymentService;
+
+    // Payments queued while the OnePipe circuit was open, or abandoned mid-debit, go out again once it lets calls through
+    @Scheduled(fixedDelayString = "${payment_retry_interval:PT30S}")
+    public void retryQueuedPayments() {
+        try {
+            int retried = paymentService.retryQueuedPayments();
+            if (retried > 0) {
+                log.info("Retried {} queued payments", retried);
+            }
+        } catch (Exception e) {
+            log.error("Error retrying queued payments: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -7,39 +7,29 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class TripleDES {
 
+    // One key schedule per secret, there is normally only the OnePipe encryption key
+    private static final Map<String, KeyedCipher> CIPHERS = new ConcurrentHashMap<>();
+
     private TripleDES(){}
 
     public static String encrypt(String accountNumber, String cbnBankCode, String secretKey) {
+        return encrypt(accountNumber + ";" + cbnBankCode, secretKey);
+    }
 
-        try {
-            String payload = accountNumber + ";" + cbnBankCode;
-
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(
-                    secretKey.getBytes(StandardCharsets.UTF_16LE)
-            );
-
-            byte[] keyBytes = Arrays.copyOf(digest, 24);
-            for (int j = 0, k = 16; j < 8;) {
-                keyBytes[k++] = keyBytes[j++];
-            }
-
-            // 3. Create Triple DES key
-            SecretKey secretKeySpec =
-                    new SecretKeySpec(keyBytes, "DESede");
-
-            IvParameterSpec iv = new IvParameterSpec(new byte[8]);
+    public static String encrypt(String payload, String secretKey) {
 
-            Cipher cipher =
-                    Cipher.getInstance("DESede/CBC/PKCS5Padding");
-            cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec, iv);
+        try {
+            Cipher cipher = CIPHERS.computeIfAbsent(secretKey, KeyedCipher::new).get();
 
-            // 6. Encrypt payload
+            // doFinal leaves the cipher re-initialised with the same key and IV, ready for the next payload
             byte[] encrypted =
                     cipher.doFinal(payload.getBytes(StandardCharsets.UTF_16LE));
 
@@ -52,39 +42,42 @@ public final class TripleDES {
         }
     }
 
-    public static String encrypt(String payload, String secretKey) {
-
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(
-                    secretKey.getBytes(StandardCharsets.UTF_16LE)
-            );
-
-            byte[] keyBytes = Arrays.copyOf(digest, 24);
-            for (int j = 0, k = 16; j < 8;) {
-                keyBytes[k++] = keyBytes[j++];
-            }
+    private static final class KeyedCipher {
 
-            // 3. Create Triple DES key
-            SecretKey secretKeySpec =
-                    new SecretKeySpec(keyBytes, "DESede");
+        private final SecretKey key;
+        // Cipher is stateful, so each thread keeps its own initialised instance
+        private final ThreadLocal<Cipher> cipher = ThreadLocal.withInitial(this::newCipher);
 
-            IvParameterSpec iv = new IvParameterSpec(new byte[8]);
+        private KeyedCipher(String secretKey) {
+            try {
+                MessageDigest md = MessageDigest.getInstance("MD5");
+                byte[] digest = md.digest(
+                        secretKey.getBytes(StandardCharsets.UTF_16LE)
+                );
 
-            Cipher cipher =
-                    Cipher.getInstance("DESede/CBC/PKCS5Padding");
-            cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec, iv);
+                byte[] keyBytes = Arrays.copyOf(digest, 24);
+                for (int j = 0, k = 16; j < 8;) {
+                    keyBytes[k++] = keyBytes[j++];
+                }
 
-            // 6. Encrypt payload
-            byte[] encrypted =
-                    cipher.doFinal(payload.getBytes(StandardCharsets.UTF_16LE));
+                this.key = new SecretKeySpec(keyBytes, "DESede");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("TripleDES key derivation failed", e);
+            }
+        }
 
-            return Base64.encodeBase64String(encrypted);
+        private Cipher get() {
+            return cipher.get();
+        }
 
-        } catch (Exception e) {
-            throw new IllegalStateException(
-                    "TripleDES encryption failed", e
-            );
+        private Cipher newCipher() {
+            try {
+                Cipher instance = Cipher.getInstance("DESede/CBC/PKCS5Padding");
+                instance.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(new byte[8]));
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("TripleDES cipher initialisation failed", e);
+            }
         }
     }
-}
\ No newline at end of file
+}
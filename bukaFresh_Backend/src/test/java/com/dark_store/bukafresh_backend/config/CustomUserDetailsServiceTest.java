@@ -0,0 +1,45 @@
+package com.dark_store.bukafresh_backend.config;
+
+import com.dark_store.bukafresh_backend.model.Role;
+import com.dark_store.bukafresh_backend.model.User;
+import com.dark_store.bukafresh_backend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomUserDetailsServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CustomUserDetailsService service = new CustomUserDetailsService(
+            userRepository, new SimpleMeterRegistry(), Duration.ofMinutes(1), 100);
+
+    @Test
+    void cachedPrincipalsCarryNoPasswordAndAreNotShared() {
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(User.builder()
+                .id("user-1")
+                .email("user@bukafresh.com")
+                .password("$2a$12$hash")
+                .role(Role.USER)
+                .emailVerified(true)
+                .build()));
+
+        User first = (User) service.loadUserByUsername("user-1");
+        first.setAccountNonLocked(false);
+        User second = (User) service.loadUserByUsername("user-1");
+
+        verify(userRepository, times(1)).findById("user-1");
+        assertThat(first).isNotSameAs(second);
+        assertThat(second.getPassword()).isNull();
+        assertThat(second.isAccountNonLocked()).isTrue();
+        assertThat(second.isEnabled()).isTrue();
+        assertThat(second.getEmail()).isEqualTo("user@bukafresh.com");
+    }
+}
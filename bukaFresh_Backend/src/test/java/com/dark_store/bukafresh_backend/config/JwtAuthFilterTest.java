@@ -0,0 +1,85 @@
+package com.dark_store.bukafresh_backend.config;
+
+import com.dark_store.bukafresh_backend.model.Role;
+import com.dark_store.bukafresh_backend.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtAuthFilterTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret";
+
+    private final JwtUtil jwtUtil = new JwtUtil(SECRET, "3600000", 100, new SimpleMeterRegistry());
+    private final CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void verifiedAccountIsAuthenticatedFromClaims() throws Exception {
+        Authentication authentication = authenticate(filter(false), user().build());
+
+        assertThat(authentication).isNotNull();
+        assertThat(((User) authentication.getPrincipal()).isEnabled()).isTrue();
+    }
+
+    @Test
+    void lockedAccountIsNotAuthenticated() throws Exception {
+        assertThat(authenticate(filter(false), user().accountNonLocked(false).build())).isNull();
+    }
+
+    @Test
+    void unverifiedAccountIsNotAuthenticated() throws Exception {
+        assertThat(authenticate(filter(false), user().emailVerified(false).build())).isNull();
+    }
+
+    @Test
+    void accountLockedSinceTheTokenWasIssuedIsRejectedWhenLoadedFromTheDatabase() throws Exception {
+        when(userDetailsService.loadUserByUsername("user-1")).thenReturn(user().accountNonLocked(false).build());
+
+        assertThat(authenticate(filter(true), user().build())).isNull();
+    }
+
+    @Test
+    void deletedUserIsLeftUnauthenticated() throws Exception {
+        when(userDetailsService.loadUserByUsername("user-1")).thenThrow(new UsernameNotFoundException("user-1 not found"));
+
+        assertThat(authenticate(filter(true), user().build())).isNull();
+    }
+
+    private JwtAuthFilter filter(boolean loadUserFromDatabase) {
+        JwtAuthFilter filter = new JwtAuthFilter(jwtUtil, userDetailsService);
+        ReflectionTestUtils.setField(filter, "loadUserFromDatabase", loadUserFromDatabase);
+        return filter;
+    }
+
+    private Authentication authenticate(JwtAuthFilter filter, User tokenUser) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/subscriptions/me");
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateToken(tokenUser));
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private User.UserBuilder user() {
+        return User.builder()
+                .id("user-1")
+                .email("user@bukafresh.com")
+                .role(Role.USER)
+                .emailVerified(true);
+    }
+}
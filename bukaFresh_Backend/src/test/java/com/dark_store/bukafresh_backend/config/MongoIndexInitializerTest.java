@@ -0,0 +1,44 @@
+package com.dark_store.bukafresh_backend.config;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.ServerVersion;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class MongoIndexInitializerTest {
+
+    @Test
+    void refreshOfAChildContextIsIgnored() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        MongoIndexInitializer initializer = new MongoIndexInitializer(mock(ApplicationContext.class), mongoTemplate, true);
+
+        initializer.initialize(new ContextRefreshedEvent(mock(ApplicationContext.class)));
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void standaloneServerIsRefusedAtStartup() {
+        MongoServer server = new MongoServer(new MemoryBackend().version(ServerVersion.MONGO_5_0));
+        try (MongoClient client = MongoClients.create(server.bindAndGetConnectionString())) {
+            ApplicationContext context = mock(ApplicationContext.class);
+            MongoIndexInitializer initializer = new MongoIndexInitializer(
+                    context, new MongoTemplate(client, "bukafresh"), false);
+
+            assertThatThrownBy(() -> initializer.initialize(new ContextRefreshedEvent(context)))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("replica set");
+        } finally {
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.dark_store.bukafresh_backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestLoggingFilterTest {
+
+    private final RequestLoggingFilter filter = new RequestLoggingFilter();
+
+    @Test
+    void plainRequestIdIsKept() throws Exception {
+        assertThat(requestIdFor("checkout-7f3a-42")).isEqualTo("checkout-7f3a-42");
+    }
+
+    @Test
+    void unsafeOrOversizedRequestIdIsReplaced() throws Exception {
+        for (String header : new String[]{"abc\r\nX-Injected: 1", "id with spaces", "a".repeat(65), ""}) {
+            String requestId = requestIdFor(header);
+
+            assertThat(requestId).isNotEqualTo(header);
+            assertThat(UUID.fromString(requestId)).isNotNull();
+        }
+    }
+
+    private String requestIdFor(String header) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        request.addHeader("X-Request-Id", header);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getHeader("X-Request-Id");
+    }
+}
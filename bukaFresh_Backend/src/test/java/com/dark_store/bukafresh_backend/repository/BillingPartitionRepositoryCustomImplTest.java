@@ -0,0 +1,81 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.BillingPartition;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.ServerVersion;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BillingPartitionRepositoryCustomImplTest {
+
+    // Leases that have run out as soon as they are taken
+    private static final Duration EXPIRED = Duration.ofSeconds(-1);
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private BillingPartitionRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend().version(ServerVersion.MONGO_5_0));
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        mongoTemplate = new MongoTemplate(client, "bukafresh");
+        repository = new BillingPartitionRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void claimThatExpiredAndWasRetakenCannotFinish() {
+        mongoTemplate.insert(pendingPartition());
+
+        BillingPartition first = repository.claimNext("node-a", EXPIRED, 3).orElseThrow();
+        // Same owner on purpose: a restarted node must not finish the claim its previous attempt made
+        BillingPartition second = repository.claimNext("node-a", Duration.ofMinutes(5), 3).orElseThrow();
+
+        assertThat(repository.renew(first.getId(), "node-a", first.getAttempts(), Duration.ofMinutes(5))).isFalse();
+        assertThat(repository.finish(first.getId(), "node-a", first.getAttempts(), "COMPLETED", 1, 0, List.of())).isFalse();
+        assertThat(repository.finish(second.getId(), "node-a", second.getAttempts(), "COMPLETED", 1, 0, List.of())).isTrue();
+        assertThat(mongoTemplate.findById(second.getId(), BillingPartition.class).getStatus()).isEqualTo("COMPLETED");
+    }
+
+    @Test
+    void renewKeepsTheClaimFromBeingTakenOver() {
+        mongoTemplate.insert(pendingPartition());
+
+        BillingPartition claimed = repository.claimNext("node-a", EXPIRED, 3).orElseThrow();
+        assertThat(repository.renew(claimed.getId(), "node-a", claimed.getAttempts(), Duration.ofMinutes(5))).isTrue();
+
+        assertThat(repository.claimNext("node-b", Duration.ofMinutes(5), 3)).isEmpty();
+    }
+
+    private BillingPartition pendingPartition() {
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(1);
+        return BillingPartition.builder()
+                .runId("run-1")
+                .index(0)
+                .billingDate(LocalDate.now())
+                .subscriptionIds(List.of("sub-1"))
+                .status("PENDING")
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+}
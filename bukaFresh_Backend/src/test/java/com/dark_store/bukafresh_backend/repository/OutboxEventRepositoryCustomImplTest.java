@@ -0,0 +1,53 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.OutboxSequence;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.ServerVersion;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboxEventRepositoryCustomImplTest {
+
+    private MongoServer server;
+    private MongoClient client;
+    private OutboxEventRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend().version(ServerVersion.MONGO_5_0));
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        repository = new OutboxEventRepositoryCustomImpl(new MongoTemplate(client, "bukafresh"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void sequenceIsPerAggregateAndNeverDatesAnEventBeforeTheOneBefore() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+        OutboxSequence first = repository.nextSequence("PAYMENT", "pay-1", now);
+        // Written by a replica whose clock is behind
+        OutboxSequence second = repository.nextSequence("PAYMENT", "pay-1", now.minusSeconds(5));
+        OutboxSequence other = repository.nextSequence("PAYMENT", "pay-2", now.minusSeconds(5));
+
+        assertThat(first.getSequence()).isEqualTo(1);
+        assertThat(second.getSequence()).isEqualTo(2);
+        assertThat(second.getCreatedAt()).isEqualTo(now);
+        assertThat(other.getSequence()).isEqualTo(1);
+        assertThat(other.getCreatedAt()).isEqualTo(now.minusSeconds(5));
+    }
+}
@@ -0,0 +1,90 @@
+package com.dark_store.bukafresh_backend.repository;
+
+import com.dark_store.bukafresh_backend.model.Payment;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.ServerVersion;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentRepositoryCustomImplTest {
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private PaymentRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend().version(ServerVersion.MONGO_5_0));
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        mongoTemplate = new MongoTemplate(client, "bukafresh");
+        repository = new PaymentRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void requeueStalledLeavesBillingPaymentsToTheirCycle() {
+        LocalDateTime stalled = LocalDateTime.now().minusHours(1);
+        Payment checkout = mongoTemplate.insert(payment("PAY_1", "CHECKOUT", "PROCESSING", stalled));
+        Payment billing = mongoTemplate.insert(payment("BILL_cycle-1", "BILLING", "PROCESSING", stalled));
+        Payment legacyBilling = mongoTemplate.insert(payment("BILL_cycle-2", null, "PROCESSING", stalled));
+
+        long requeued = repository.requeueStalled(LocalDateTime.now().minusMinutes(10));
+
+        assertThat(requeued).isEqualTo(1);
+        assertThat(status(checkout)).isEqualTo("PENDING");
+        assertThat(status(billing)).isEqualTo("PROCESSING");
+        assertThat(status(legacyBilling)).isEqualTo("PROCESSING");
+    }
+
+    @Test
+    void requeueStalledSkipsRecentlyClaimedPayments() {
+        Payment recent = mongoTemplate.insert(payment("PAY_1", "CHECKOUT", "PROCESSING", LocalDateTime.now()));
+
+        assertThat(repository.requeueStalled(LocalDateTime.now().minusMinutes(10))).isZero();
+        assertThat(status(recent)).isEqualTo("PROCESSING");
+    }
+
+    @Test
+    void claimQueuedOnlyTakesCheckoutPayments() {
+        LocalDateTime older = LocalDateTime.now().minusHours(2);
+        mongoTemplate.insert(payment("BILL_cycle-1", "BILLING", "PENDING", older));
+        Payment checkout = mongoTemplate.insert(payment("PAY_1", "CHECKOUT", "PENDING", LocalDateTime.now().minusHours(1)));
+
+        assertThat(repository.claimQueued()).get()
+                .extracting(Payment::getId, Payment::getStatus)
+                .containsExactly(checkout.getId(), "PROCESSING");
+        assertThat(repository.claimQueued()).isEmpty();
+    }
+
+    private String status(Payment payment) {
+        return mongoTemplate.findById(payment.getId(), Payment.class).getStatus();
+    }
+
+    private Payment payment(String reference, String source, String status, LocalDateTime updatedAt) {
+        return Payment.builder()
+                .userId("user-1")
+                .subscriptionId("sub-1")
+                .status(status)
+                .source(source)
+                .paymentReference(reference)
+                .onePipeReference(reference)
+                .createdAt(updatedAt)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.dark_store.bukafresh_backend.service.clients;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdLimitTest {
+
+    private static final long FAST = Duration.ofMillis(100).toNanos();
+
+    @Test
+    void limitGrowsByOnePerRoundOfFastSuccesses() {
+        AimdLimit limit = new AimdLimit(2, 1, 4, 0.5, 2.0);
+
+        // Each success adds 1/limit, so 2 -> 2.5 -> 2.9 -> 3.24
+        for (int i = 0; i < 2; i++) {
+            limit.acquire().block().succeeded(FAST);
+        }
+        assertThat(limit.getLimit()).isEqualTo(2);
+        limit.acquire().block().succeeded(FAST);
+        assertThat(limit.getLimit()).isEqualTo(3);
+
+        for (int i = 0; i < 50; i++) {
+            limit.acquire().block().succeeded(FAST);
+        }
+        assertThat(limit.getLimit()).isEqualTo(4);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    void limitShrinksWhenDropped() {
+        AimdLimit limit = new AimdLimit(8, 2, 10, 0.5, 2.0);
+
+        limit.acquire().block().dropped();
+        assertThat(limit.getLimit()).isEqualTo(4);
+
+        limit.acquire().block().dropped();
+        limit.acquire().block().dropped();
+        assertThat(limit.getLimit()).isEqualTo(2);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRisesPastTolerance() {
+        AimdLimit limit = new AimdLimit(8, 1, 10, 0.5, 2.0);
+
+        limit.acquire().block().succeeded(FAST);
+        int settled = limit.getLimit();
+
+        limit.acquire().block().succeeded(FAST * 3);
+        assertThat(limit.getLimit()).isLessThan(settled);
+    }
+
+    @Test
+    void waiterIsGrantedTheSlotOnRelease() {
+        AimdLimit limit = new AimdLimit(1, 1, 1, 0.5, 2.0);
+        AimdLimit.Permit first = limit.acquire().block();
+
+        StepVerifier.create(limit.acquire())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(first::ignored)
+                .consumeNextWith(AimdLimit.Permit::ignored)
+                .verifyComplete();
+
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    void cancelledWaiterGivesUpItsPlace() {
+        AimdLimit limit = new AimdLimit(1, 1, 1, 0.5, 2.0);
+        AimdLimit.Permit first = limit.acquire().block();
+
+        StepVerifier.create(limit.acquire())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenCancel()
+                .verify();
+
+        // The slot is not handed to the cancelled waiter, so it comes back free
+        first.ignored();
+        assertThat(limit.getInFlight()).isZero();
+
+        StepVerifier.create(limit.acquire())
+                .consumeNextWith(AimdLimit.Permit::ignored)
+                .verifyComplete();
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    void permitIsReleasedOnlyOnce() {
+        AimdLimit limit = new AimdLimit(2, 1, 2, 0.5, 2.0);
+        AimdLimit.Permit permit = limit.acquire().block();
+        AimdLimit.Permit other = limit.acquire().block();
+
+        permit.succeeded(FAST);
+        permit.dropped();
+        permit.ignored();
+        assertThat(limit.getInFlight()).isEqualTo(1);
+
+        other.ignored();
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    void inFlightNeverGoesNegativeOrLeaksUnderCancellation() {
+        AimdLimit limit = new AimdLimit(4, 1, 8, 0.5, 2.0);
+        AtomicInteger lowest = new AtomicInteger();
+        AtomicInteger highest = new AtomicInteger();
+
+        // Timeouts cancel callers both while queued and while holding a permit, racing the grants
+        Flux.range(0, 2_000)
+                .flatMap(i -> limit.acquire()
+                        .flatMap(permit -> Mono.delay(Duration.ofNanos(ThreadLocalRandom.current().nextLong(2_000_000)))
+                                .doOnNext(tick -> permit.succeeded(FAST))
+                                .doFinally(signal -> permit.ignored()))
+                        .timeout(Duration.ofNanos(ThreadLocalRandom.current().nextLong(2_000_000)))
+                        .onErrorResume(TimeoutException.class, e -> Mono.empty())
+                        .doFinally(signal -> {
+                            int current = limit.getInFlight();
+                            lowest.accumulateAndGet(current, Math::min);
+                            highest.accumulateAndGet(current, Math::max);
+                        }), 64)
+                .blockLast(Duration.ofSeconds(30));
+
+        assertThat(lowest.get()).isGreaterThanOrEqualTo(0);
+        assertThat(highest.get()).isLessThanOrEqualTo(8);
+        assertThat(limit.getInFlight()).isZero();
+    }
+}
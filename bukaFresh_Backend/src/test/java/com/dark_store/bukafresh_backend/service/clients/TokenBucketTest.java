@@ -0,0 +1,65 @@
+package com.dark_store.bukafresh_backend.service.clients;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void burstIsServedAtOnce() {
+        TokenBucket bucket = new TokenBucket(10, 3, clock::get);
+
+        assertWait(bucket.reserve(), 0);
+        assertWait(bucket.reserve(), 0);
+        assertWait(bucket.reserve(), 0);
+        assertWait(bucket.reserve(), 100);
+    }
+
+    @Test
+    void callersArePacedToTheConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(10, 1, clock::get);
+
+        assertWait(bucket.reserve(), 0);
+        // Each further caller is scheduled one tenth of a second after the one before it
+        for (int i = 1; i <= 20; i++) {
+            assertWait(bucket.reserve(), 100L * i);
+        }
+    }
+
+    @Test
+    void tokensRefillWithTime() {
+        TokenBucket bucket = new TokenBucket(10, 1, clock::get);
+        bucket.reserve();
+        assertWait(bucket.reserve(), 100);
+
+        // The reserved token comes due, then one more accrues
+        advance(Duration.ofMillis(200));
+        assertWait(bucket.reserve(), 0);
+        assertWait(bucket.reserve(), 100);
+    }
+
+    @Test
+    void idleTimeDoesNotBuildUpMoreThanTheBurst() {
+        TokenBucket bucket = new TokenBucket(10, 2, clock::get);
+
+        advance(Duration.ofMinutes(1));
+        assertWait(bucket.reserve(), 0);
+        assertWait(bucket.reserve(), 0);
+        assertWait(bucket.reserve(), 100);
+    }
+
+    // The bucket works in fractional tokens, so waits are compared to the microsecond
+    private void assertWait(Duration wait, long millis) {
+        assertThat(wait).isCloseTo(Duration.ofMillis(millis), Duration.ofNanos(1_000));
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,96 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.config.BillingProperties;
+import com.dark_store.bukafresh_backend.dto.billing.BillingDateUpdate;
+import com.dark_store.bukafresh_backend.model.BillingPartition;
+import com.dark_store.bukafresh_backend.model.Subscription;
+import com.dark_store.bukafresh_backend.repository.BillingPartitionRepository;
+import com.dark_store.bukafresh_backend.repository.BillingRunRepository;
+import com.dark_store.bukafresh_backend.repository.LeaseRepository;
+import com.dark_store.bukafresh_backend.repository.SubscriptionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BillingServiceImplTest {
+
+    private static final LocalDate BILLING_DATE = LocalDate.of(2026, 3, 31);
+
+    private final SubscriptionRepository subscriptionRepository = mock(SubscriptionRepository.class);
+    private final BillingPartitionRepository billingPartitionRepository = mock(BillingPartitionRepository.class);
+    private BillingServiceImpl billingService;
+
+    @AfterEach
+    void tearDown() {
+        if (billingService != null) {
+            billingService.shutdown();
+        }
+    }
+
+    @Test
+    void nextBillingDateStepsByTheSubscriptionsCycle() {
+        BillingPartition partition = BillingPartition.builder()
+                .id("partition-1")
+                .runId("run-1")
+                .billingDate(BILLING_DATE)
+                .subscriptionIds(List.of("monthly", "yearly", "unset"))
+                .status("LEASED")
+                .attempts(1)
+                .build();
+        when(billingPartitionRepository.claimNext(anyString(), any(), anyInt()))
+                .thenReturn(Optional.of(partition))
+                .thenReturn(Optional.empty());
+        when(subscriptionRepository.findAllById(partition.getSubscriptionIds())).thenReturn(List.of(
+                subscription("monthly", "MONTHLY"),
+                subscription("yearly", "YEARLY"),
+                subscription("unset", null)));
+        // The writer reuses its buffer after a flush, so the updates are copied as they are written
+        List<BillingDateUpdate> written = new CopyOnWriteArrayList<>();
+        when(subscriptionRepository.advanceBillingDates(any())).thenAnswer(invocation -> {
+            written.addAll(invocation.getArgument(0));
+            return List.of();
+        });
+
+        billingService = new BillingServiceImpl(subscriptionRepository, mock(BillingRunRepository.class),
+                billingPartitionRepository, mock(LeaseRepository.class), new BillingProperties(),
+                mock(OrderPipeline.class));
+        billingService.claimPartitions();
+
+        verify(billingPartitionRepository, timeout(5_000)).finish(
+                eq("partition-1"), anyString(), eq(1), eq("COMPLETED"), anyInt(), anyInt(), anyList());
+
+        Map<String, LocalDate> nextDates = written.stream()
+                .collect(Collectors.toMap(BillingDateUpdate::getSubscriptionId, BillingDateUpdate::getNextBillingDate));
+        assertThat(nextDates).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "monthly", LocalDate.of(2026, 4, 30),
+                "yearly", LocalDate.of(2027, 3, 31),
+                "unset", LocalDate.of(2026, 4, 30)));
+    }
+
+    private Subscription subscription(String id, String billingCycle) {
+        Subscription subscription = new Subscription();
+        subscription.setId(id);
+        subscription.setUserId("user-" + id);
+        subscription.setStatus("ACTIVE");
+        subscription.setBillingCycle(billingCycle);
+        subscription.setNextBillingDate(BILLING_DATE);
+        return subscription;
+    }
+}
@@ -0,0 +1,114 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.config.OnePipeProperties;
+import com.dark_store.bukafresh_backend.config.OrderPipelineProperties;
+import com.dark_store.bukafresh_backend.dto.onePipe.response.OnePipeResponse;
+import com.dark_store.bukafresh_backend.model.BillingCycle;
+import com.dark_store.bukafresh_backend.model.Payment;
+import com.dark_store.bukafresh_backend.model.Subscription;
+import com.dark_store.bukafresh_backend.repository.BillingCycleRepository;
+import com.dark_store.bukafresh_backend.repository.PaymentRepository;
+import com.dark_store.bukafresh_backend.service.OrderService;
+import com.dark_store.bukafresh_backend.service.OutboxService;
+import com.dark_store.bukafresh_backend.service.clients.OnePipeCollectEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderPipelineTest {
+
+    private final BillingCycleRepository billingCycleRepository = mock(BillingCycleRepository.class);
+    private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+    private final OnePipeCollectEngine collectEngine = mock(OnePipeCollectEngine.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private OrderPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(billingCycleRepository.open(any())).thenAnswer(invocation -> {
+            BillingCycle cycle = invocation.getArgument(0);
+            cycle.setId(cycle.getSubscriptionId() + "-cycle");
+            return cycle;
+        });
+        when(billingCycleRepository.claimCollection(anyString(), any())).thenAnswer(invocation -> Optional.of(
+                BillingCycle.builder()
+                        .id(invocation.getArgument(0))
+                        .userId("user-1")
+                        .mandateId("mandate-1")
+                        .amount(new BigDecimal("140000"))
+                        .stage("COLLECTING")
+                        .collectAttempts(1)
+                        .build()));
+        when(paymentRepository.findByPaymentReference(anyString())).thenAnswer(invocation -> Optional.of(
+                Payment.builder().id("pay-" + invocation.getArgument(0)).paymentReference(invocation.getArgument(0)).build()));
+
+        OrderPipelineProperties properties = new OrderPipelineProperties();
+        properties.setCollect(new OrderPipelineProperties.Stage(1, 10));
+        pipeline = new OrderPipeline(billingCycleRepository, paymentRepository, mock(OrderService.class),
+                mock(OutboxService.class), collectEngine, transactionTemplate, new ObjectMapper(), properties,
+                new OnePipeProperties(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void collectWorkerIsFreeWhileADebitIsOutstanding() {
+        Sinks.One<OnePipeResponse> slowDebit = Sinks.one();
+        when(collectEngine.collectRecurring(eq("BILL_slow-cycle"), anyInt(), anyString(), anyString(), any()))
+                .thenReturn(slowDebit.asMono());
+        when(collectEngine.collectRecurring(eq("BILL_fast-cycle"), anyInt(), anyString(), anyString(), any()))
+                .thenReturn(Mono.never());
+
+        // One collect worker: the second cycle only gets claimed if the first debit does not hold it
+        pipeline.open(subscription("slow"));
+        pipeline.open(subscription("fast"));
+
+        verify(billingCycleRepository, timeout(5_000)).claimCollection(eq("fast-cycle"), any());
+        verify(paymentRepository, never()).complete(anyString(), anyString(), any(), any());
+
+        OnePipeResponse response = new OnePipeResponse();
+        response.setStatus("Successful");
+        slowDebit.tryEmitValue(response);
+
+        verify(paymentRepository, timeout(5_000)).complete(eq("pay-BILL_slow-cycle"), eq("PAID"), anyString(), isNull());
+        verify(billingCycleRepository, timeout(5_000)).advanceCollection(eq("slow-cycle"), eq(1), eq("PAID"), any());
+    }
+
+    private Subscription subscription(String id) {
+        Subscription subscription = new Subscription();
+        subscription.setId(id);
+        subscription.setUserId("user-1");
+        subscription.setMandateId("mandate-1");
+        subscription.setPrice(new BigDecimal("140000"));
+        subscription.setNextBillingDate(LocalDate.now());
+        subscription.setCreatedAt(LocalDateTime.now());
+        return subscription;
+    }
+}
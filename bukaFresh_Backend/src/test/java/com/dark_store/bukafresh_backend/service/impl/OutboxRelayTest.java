@@ -0,0 +1,266 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.config.OutboxProperties;
+import com.dark_store.bukafresh_backend.model.OutboxEvent;
+import com.dark_store.bukafresh_backend.model.OutboxSequence;
+import com.dark_store.bukafresh_backend.model.Payment;
+import com.dark_store.bukafresh_backend.model.Subscription;
+import com.dark_store.bukafresh_backend.repository.LeaseRepository;
+import com.dark_store.bukafresh_backend.repository.OutboxEventRepository;
+import com.dark_store.bukafresh_backend.repository.PaymentRepository;
+import com.dark_store.bukafresh_backend.repository.SubscriptionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@EmbeddedKafka(partitions = 1, topics = {"bukafresh.payment", "bukafresh.subscription"})
+class OutboxRelayTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    // Stands in for the outbox_events collection
+    private final Map<String, OutboxEvent> outbox = new LinkedHashMap<>();
+    private OutboxEventRepository outboxEventRepository;
+    private LeaseRepository leaseRepository;
+    private DefaultKafkaProducerFactory<String, String> producerFactory;
+    private boolean subscriptionExists = true;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository = mock(OutboxEventRepository.class);
+        when(outboxEventRepository.save(any(OutboxEvent.class))).thenAnswer(invocation -> {
+            OutboxEvent event = invocation.getArgument(0);
+            event.setId(UUID.randomUUID().toString());
+            outbox.put(event.getId(), event);
+            return event;
+        });
+        when(outboxEventRepository.findByStatusOrderByCreatedAtAscSequenceAsc(eq("PENDING"), any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable page = invocation.getArgument(1);
+            return outbox.values().stream()
+                    .filter(event -> "PENDING".equals(event.getStatus()))
+                    .limit(page.getPageSize())
+                    .toList();
+        });
+        when(outboxEventRepository.nextSequence(anyString(), anyString(), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            String aggregateId = invocation.getArgument(1);
+            long previous = outbox.values().stream().filter(event -> aggregateId.equals(event.getAggregateId())).count();
+            return new OutboxSequence(invocation.getArgument(0) + ":" + aggregateId, previous + 1, invocation.getArgument(2));
+        });
+        doAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            ids.forEach(id -> outbox.get(id).setStatus("PUBLISHED"));
+            return null;
+        }).when(outboxEventRepository).markPublished(anyCollection(), any(LocalDateTime.class));
+
+        leaseRepository = mock(LeaseRepository.class);
+        when(leaseRepository.tryAcquire(eq(OutboxRelay.LEASE_NAME), anyString(), any())).thenReturn(Optional.of(1L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (producerFactory != null) {
+            producerFactory.destroy();
+        }
+    }
+
+    @Test
+    void committedPaymentIsPublishedWithEventIdHeader(EmbeddedKafkaBroker broker) {
+        completePaymentFromCallback();
+
+        OutboxEvent paymentEvent = outbox.values().stream()
+                .filter(event -> "PAYMENT".equals(event.getAggregateType()))
+                .findFirst()
+                .orElseThrow();
+        assertThat(paymentEvent.getStatus()).isEqualTo("PENDING");
+
+        relay(broker, Map.of()).relay();
+
+        try (Consumer<String, String> consumer = consumer(broker)) {
+            broker.consumeFromAnEmbeddedTopic(consumer, "bukafresh.payment");
+            // The broker is shared by the tests in this class, so pick this test's event out by its id
+            ConsumerRecord<String, String> record = StreamSupport
+                    .stream(KafkaTestUtils.getRecords(consumer).records("bukafresh.payment").spliterator(), false)
+                    .filter(candidate -> paymentEvent.getId().equals(header(candidate, "eventId")))
+                    .findFirst()
+                    .orElseThrow();
+
+            assertThat(record.key()).isEqualTo("pay-1");
+            assertThat(header(record, "eventType")).isEqualTo("PAYMENT_PAID");
+            assertThat(record.value()).contains("\"paymentReference\":\"PAY_1\"");
+        }
+        assertThat(outbox.values()).extracting(OutboxEvent::getStatus).containsOnly("PUBLISHED");
+    }
+
+    @Test
+    void paymentForDeletedSubscriptionIsStillRecorded(EmbeddedKafkaBroker broker) {
+        subscriptionExists = false;
+        completePaymentFromCallback();
+
+        // OnePipe has the money, so the result is committed and flagged instead of rolled back
+        assertThat(outbox.values()).extracting(OutboxEvent::getEventType)
+                .containsExactly("PAYMENT_PAID", "PAYMENT_UNAPPLIED");
+
+        relay(broker, Map.of()).relay();
+        assertThat(outbox.values()).extracting(OutboxEvent::getStatus).containsOnly("PUBLISHED");
+    }
+
+    @Test
+    void failedSendLeavesEventsPending(EmbeddedKafkaBroker broker) {
+        // Larger than the producer accepts, so the broker never acknowledges it
+        OutboxEvent rejected = outboxEventRepository.save(event("sub-1", "x".repeat(4096)));
+        OutboxEvent following = outboxEventRepository.save(event("sub-1", "{}"));
+
+        relay(broker, Map.of(ProducerConfig.MAX_REQUEST_SIZE_CONFIG, 1024)).relay();
+
+        // The event after the failed one stays pending too, so it cannot overtake it
+        assertThat(rejected.getStatus()).isEqualTo("PENDING");
+        assertThat(following.getStatus()).isEqualTo("PENDING");
+    }
+
+    // Runs the OnePipe success callback through PaymentServiceImpl, which records the outbox events in its transaction
+    private void completePaymentFromCallback() {
+        Payment payment = Payment.builder()
+                .id("pay-1")
+                .userId("user-1")
+                .subscriptionId("sub-1")
+                .amount(new BigDecimal("140000"))
+                .currency("NGN")
+                .status("PROCESSING")
+                .paymentReference("PAY_1")
+                .onePipeReference("PAY_1")
+                .createdAt(LocalDateTime.now())
+                .build();
+        Payment paid = Payment.builder()
+                .id("pay-1")
+                .userId("user-1")
+                .subscriptionId("sub-1")
+                .amount(new BigDecimal("140000"))
+                .currency("NGN")
+                .status("PAID")
+                .paymentReference("PAY_1")
+                .onePipeReference("PAY_1")
+                .createdAt(payment.getCreatedAt())
+                .paidAt(LocalDateTime.now())
+                .build();
+
+        PaymentRepository paymentRepository = mock(PaymentRepository.class);
+        when(paymentRepository.findByOnePipeReference("PAY_1")).thenReturn(Optional.of(payment));
+        when(paymentRepository.complete(eq("pay-1"), eq("PAID"), any(), isNull())).thenReturn(Optional.of(paid));
+
+        Subscription subscription = new Subscription();
+        subscription.setId("sub-1");
+        subscription.setUserId("user-1");
+        subscription.setTier("STANDARD");
+        subscription.setStatus("PENDING");
+        SubscriptionRepository subscriptionRepository = mock(SubscriptionRepository.class);
+        when(subscriptionRepository.activatePending(eq("sub-1"), any())).thenAnswer(invocation -> {
+            if (!subscriptionExists) {
+                return Optional.empty();
+            }
+            subscription.setStatus("ACTIVE");
+            return Optional.of(subscription);
+        });
+
+        PaymentServiceImpl paymentService = new PaymentServiceImpl(
+                paymentRepository,
+                subscriptionRepository,
+                null,
+                new OutboxServiceImpl(outboxEventRepository, objectMapper),
+                new TransactionTemplate(new PseudoTransactionManager()));
+
+        paymentService.handleOnePipeCallback("PAY_1", "SUCCESS", "{}");
+    }
+
+    private OutboxRelay relay(EmbeddedKafkaBroker broker, Map<String, Object> overrides) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.putAll(overrides);
+        producerFactory = new DefaultKafkaProducerFactory<>(config);
+
+        OutboxProperties properties = new OutboxProperties();
+        return new OutboxRelay(outboxEventRepository, new KafkaTemplate<>(producerFactory), leaseRepository, properties);
+    }
+
+    private Consumer<String, String> consumer(EmbeddedKafkaBroker broker) {
+        Map<String, Object> config = KafkaTestUtils.consumerProps("outbox-relay-test", "false", broker);
+        return new DefaultKafkaConsumerFactory<>(config, new StringDeserializer(), new StringDeserializer()).createConsumer();
+    }
+
+    private OutboxEvent event(String aggregateId, String payload) {
+        return OutboxEvent.builder()
+                .aggregateType("SUBSCRIPTION")
+                .aggregateId(aggregateId)
+                .eventType("SUBSCRIPTION_ACTIVE")
+                .payload(payload)
+                .status("PENDING")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private String header(ConsumerRecord<String, String> record, String name) {
+        return new String(record.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+
+    // Opens a real transaction boundary, like MongoTransactionManager, without a database behind it
+    private static final class PseudoTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
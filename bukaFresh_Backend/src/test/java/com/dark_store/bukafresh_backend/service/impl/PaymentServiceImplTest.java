@@ -0,0 +1,134 @@
+package com.dark_store.bukafresh_backend.service.impl;
+
+import com.dark_store.bukafresh_backend.dto.request.ProcessPaymentRequest;
+import com.dark_store.bukafresh_backend.exception.ServiceUnavailableException;
+import com.dark_store.bukafresh_backend.model.Payment;
+import com.dark_store.bukafresh_backend.model.Subscription;
+import com.dark_store.bukafresh_backend.model.User;
+import com.dark_store.bukafresh_backend.repository.PaymentRepository;
+import com.dark_store.bukafresh_backend.repository.SubscriptionRepository;
+import com.dark_store.bukafresh_backend.service.OutboxService;
+import com.dark_store.bukafresh_backend.service.clients.OnePipeMandateClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PaymentServiceImplTest {
+
+    private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+    private final SubscriptionRepository subscriptionRepository = mock(SubscriptionRepository.class);
+    private final OnePipeMandateClient onePipeMandateClient = mock(OnePipeMandateClient.class);
+
+    private PaymentServiceImpl paymentService;
+
+    @BeforeEach
+    void setUp() {
+        paymentService = new PaymentServiceImpl(paymentRepository, subscriptionRepository, onePipeMandateClient,
+                mock(OutboxService.class), mock(TransactionTemplate.class));
+
+        User user = User.builder().id("user-1").build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void failureBeforeTheDebitCanBeRetried() {
+        when(paymentRepository.findByPaymentReference(anyString())).thenReturn(Optional.empty());
+        when(subscriptionRepository.findById("sub-1")).thenReturn(Optional.of(pendingSubscription()));
+        when(paymentRepository.save(any(Payment.class))).thenThrow(new DataAccessResourceFailureException("timed out"));
+
+        // Released by the idempotency service, unlike the errors stored after the debit was sent
+        StepVerifier.create(paymentService.processPayment(request(), "key-1"))
+                .expectError(ServiceUnavailableException.class)
+                .verify();
+        verifyNoInteractions(onePipeMandateClient);
+    }
+
+    @Test
+    void rerunOfTheSameRequestFindsItsPaymentInsteadOfDebitingAgain() {
+        Payment earlier = Payment.builder()
+                .id("pay-1")
+                .userId("user-1")
+                .subscriptionId("sub-1")
+                .amount(new BigDecimal("140000"))
+                .status("PROCESSING")
+                .paymentReference("PAY_EARLIER")
+                .createdAt(LocalDateTime.now())
+                .build();
+        when(paymentRepository.findByPaymentReference(anyString())).thenReturn(Optional.of(earlier));
+
+        StepVerifier.create(paymentService.processPayment(request(), "key-1"))
+                .assertNext(response -> assertThat(response.getStatus()).isEqualTo("PROCESSING"))
+                .verifyComplete();
+        StepVerifier.create(paymentService.processPayment(request(), "key-1"))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        ArgumentCaptor<String> references = ArgumentCaptor.forClass(String.class);
+        verify(paymentRepository, times(2)).findByPaymentReference(references.capture());
+        assertThat(references.getAllValues().get(0))
+                .startsWith("PAY_")
+                .isEqualTo(references.getAllValues().get(1));
+        verifyNoInteractions(onePipeMandateClient, subscriptionRepository);
+    }
+
+    @Test
+    void differentKeysGetDifferentPayments() {
+        when(paymentRepository.findByPaymentReference(anyString())).thenReturn(Optional.empty());
+        when(subscriptionRepository.findById("sub-1")).thenReturn(Optional.of(pendingSubscription()));
+        when(paymentRepository.save(any(Payment.class))).thenThrow(new DataAccessResourceFailureException("timed out"));
+
+        paymentService.processPayment(request(), "key-1").onErrorComplete().block();
+        paymentService.processPayment(request(), "key-2").onErrorComplete().block();
+
+        ArgumentCaptor<String> references = ArgumentCaptor.forClass(String.class);
+        verify(paymentRepository, times(2)).findByPaymentReference(references.capture());
+        assertThat(references.getAllValues().get(0)).isNotEqualTo(references.getAllValues().get(1));
+    }
+
+    private Subscription pendingSubscription() {
+        Subscription subscription = new Subscription();
+        subscription.setId("sub-1");
+        subscription.setUserId("user-1");
+        subscription.setTier("STANDARD");
+        subscription.setStatus("PENDING");
+        return subscription;
+    }
+
+    private ProcessPaymentRequest request() {
+        return ProcessPaymentRequest.builder()
+                .subscriptionId("sub-1")
+                .bvn("12345678901")
+                .accountNumber("0123456789")
+                .bankName("Test Bank")
+                .phoneNumber("08012345678")
+                .firstName("Ada")
+                .lastName("Obi")
+                .build();
+    }
+}
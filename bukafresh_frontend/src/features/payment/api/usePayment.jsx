@@ -55,7 +55,7 @@ export function usePayment() {
 
   return {
     // Data
-    userPayments: userPayments?.data,
+    userPayments: userPayments?.data?.items,
     
     // Loading states
     isLoadingPayments,